@@ -0,0 +1,99 @@
+package loa;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static loa.Side.*;
+
+/** Throughput of the Board and Move operations the players call most,
+ *  over each position in the corpus.
+ *  @author Nick Holt */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    /** The position benchmarked, as named in Positions. */
+    @Param({ Positions.OPENING, Positions.OPENING2, Positions.MIDDLEGAME,
+             Positions.ENDGAME })
+    public String phase;
+
+    /** Set up the board for PHASE and the moves tried on it. */
+    @Setup
+    public void setUp() {
+        _board = Positions.get(phase);
+        ArrayList<Move> legal = _board.legalMoves();
+        _legal = legal.toArray(new Move[legal.size()]);
+        ArrayList<Move> candidates = new ArrayList<Move>();
+        long mine = _board.pieces(_board.turn());
+        for (int code = 0; code < Move.NUM_CODES; code += 1) {
+            Move move = Move.create(code);
+            if (move != null && (mine & BitBoards.bit(Move.from(code))) != 0) {
+                candidates.add(move);
+            }
+        }
+        _candidates = candidates.toArray(new Move[candidates.size()]);
+    }
+
+    /** Generate the legal moves. */
+    @Benchmark
+    public ArrayList<Move> legalMoves() {
+        return _board.legalMoves();
+    }
+
+    /** Test every line move from a square of the side to move, legal or
+     *  not, into BH. */
+    @Benchmark
+    public void isLegal(Blackhole bh) {
+        for (Move move : _candidates) {
+            bh.consume(_board.isLegal(move));
+        }
+    }
+
+    /** Test both sides for contiguity into BH. */
+    @Benchmark
+    public void piecesContiguous(Blackhole bh) {
+        bh.consume(_board.piecesContiguous(BLACK));
+        bh.consume(_board.piecesContiguous(WHITE));
+    }
+
+    /** Make and retract each legal move in turn. */
+    @Benchmark
+    public void makeRetract() {
+        for (Move move : _legal) {
+            _board.makeMove(move);
+            _board.retract();
+        }
+    }
+
+    /** Hash each legal move into BH. */
+    @Benchmark
+    public void moveHashCode(Blackhole bh) {
+        for (Move move : _legal) {
+            bh.consume(move.hashCode());
+        }
+    }
+
+    /** The position benchmarked. */
+    private MutableBoard _board;
+    /** The legal moves in _board. */
+    private Move[] _legal;
+    /** Every line move from a square of the side to move in _board. */
+    private Move[] _candidates;
+}
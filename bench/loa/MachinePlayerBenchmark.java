@@ -0,0 +1,73 @@
+package loa;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Time taken by MachinePlayer to choose a move with no time limit, and so
+ *  at its fixed search depth, over each position in the corpus.  The
+ *  transposition table is cleared before every move so that each one
+ *  does the same work.
+ *  @author Nick Holt */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MachinePlayerBenchmark {
+
+    /** The position benchmarked, as named in Positions. */
+    @Param({ Positions.OPENING, Positions.OPENING2, Positions.MIDDLEGAME,
+             Positions.ENDGAME })
+    public String phase;
+
+    /** Set up a quiet, untimed game at PHASE with one search thread. */
+    @Setup(Level.Trial)
+    public void setUp() {
+        MutableBoard board = Positions.get(phase);
+        _game = new Game(0, board.turn(), SEED, 0);
+        _game.setThreads(1);
+        _game.setQuiet(true);
+        _game.setBoard(board);
+        _player = new MachinePlayer(board.turn(), _game);
+    }
+
+    /** Start each move from an empty transposition table. */
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        _game.getTranspositionTable().clear();
+    }
+
+    /** Stop the game's search threads. */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        _game.shutdown();
+    }
+
+    /** Choose a move. */
+    @Benchmark
+    public Move makeMove() {
+        return _player.makeMove();
+    }
+
+    /** The seed of the benchmarked game. */
+    private static final long SEED = 1;
+
+    /** The game holding the benchmarked position. */
+    private Game _game;
+    /** The player to move in _game. */
+    private MachinePlayer _player;
+}
@@ -0,0 +1,86 @@
+package loa;
+
+import java.util.SplittableRandom;
+
+import static loa.Side.*;
+
+/** The corpus of positions the benchmarks run over.  Each position is
+ *  reproducible: the later phases are reached from the standard position
+ *  by pseudo-random play from a fixed seed.
+ *  @author Nick Holt */
+final class Positions {
+
+    /** Not instantiable. */
+    private Positions() {
+    }
+
+    /** The names of the phases accepted by get, for use in @Param. */
+    static final String OPENING = "opening", OPENING2 = "opening2",
+        MIDDLEGAME = "middlegame", ENDGAME = "endgame";
+
+    /** Return a new board holding the position for PHASE, one of
+     *  OPENING (the standard position), OPENING2 (INITIAL_PIECES2),
+     *  MIDDLEGAME or ENDGAME. */
+    static MutableBoard get(String phase) {
+        switch (phase) {
+        case OPENING:
+            return new MutableBoard(Board.INITIAL_PIECES, BLACK);
+        case OPENING2:
+            return new MutableBoard(Board.INITIAL_PIECES2, BLACK);
+        case MIDDLEGAME:
+            return play(MIDDLEGAME_PLIES, MIDDLEGAME_PIECES);
+        case ENDGAME:
+            return play(ENDGAME_PLIES, ENDGAME_PIECES);
+        default:
+            throw new IllegalArgumentException("unknown phase: " + phase);
+        }
+    }
+
+    /** Return the position reached from the standard one after PLIES
+     *  plies of random play that prefers captures until the side to move
+     *  has no more than PIECES pieces, and in which neither side has
+     *  won. */
+    private static MutableBoard play(int plies, int pieces) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[] moves = new int[Board.MAX_MOVES];
+        while (true) {
+            MutableBoard board =
+                new MutableBoard(Board.INITIAL_PIECES, BLACK);
+            for (int ply = 0; ply < plies; ply += 1) {
+                int n = board.generateMoves(moves, 0);
+                if (n == 0) {
+                    break;
+                }
+                int move = moves[random.nextInt(n)];
+                for (int i = 0; i < n; i += 1) {
+                    if (board.pieceCount(board.turn().opponent()) > pieces
+                        && board.isCapture(moves[i])) {
+                        move = moves[i];
+                        break;
+                    }
+                }
+                board.makeMove(move);
+                if (board.piecesContiguous(BLACK)
+                    || board.piecesContiguous(WHITE)) {
+                    break;
+                }
+                if (ply == plies - 1) {
+                    return board;
+                }
+            }
+        }
+    }
+
+    /** The seed from which the later positions are played. */
+    private static final long SEED = 61;
+    /** Plies played to reach the middlegame. */
+    private static final int MIDDLEGAME_PLIES = 16;
+    /** Captures are preferred while a side has more pieces than this,
+     *  on the way to the middlegame. */
+    private static final int MIDDLEGAME_PIECES = 9;
+    /** Plies played to reach the endgame. */
+    private static final int ENDGAME_PLIES = 30;
+    /** Captures are preferred while a side has more pieces than this,
+     *  on the way to the endgame. */
+    private static final int ENDGAME_PIECES = 6;
+}
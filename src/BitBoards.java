@@ -0,0 +1,156 @@
+package loa;
+
+/** Static utilities for the 64-bit board representation used by Board.
+ *  The square at column C, row R (1 <= C, R <= 8) corresponds to bit
+ *  8 * (R - 1) + (C - 1) of a bitboard.
+ *  @author Nick Holt
+ */
+final class BitBoards {
+
+    /** Return the square index (0-63) of column C, row R. */
+    static int square(int c, int r) {
+        return ((r - 1) << 3) + (c - 1);
+    }
+
+    /** Return the column (1-8) of square SQ. */
+    static int colOf(int sq) {
+        return (sq & SEVEN) + 1;
+    }
+
+    /** Return the row (1-8) of square SQ. */
+    static int rowOf(int sq) {
+        return (sq >>> 3) + 1;
+    }
+
+    /** Return a bitboard containing only square SQ. */
+    static long bit(int sq) {
+        return 1L << sq;
+    }
+
+    /** Return true iff column C, row R lies on the board. */
+    static boolean onBoard(int c, int r) {
+        return c >= 1 && c <= SIZE && r >= 1 && r <= SIZE;
+    }
+
+    /** Return the direction (0 <= D < 8, clockwise with north = 0) whose
+     *  unit vector is (DC, DR). Requires that -1 <= DC, DR <= 1 and that
+     *  DC and DR are not both 0. */
+    static int direction(int dc, int dr) {
+        return DIRECTIONS[dc + 1][dr + 1];
+    }
+
+    /** Return the square DIST squares from SQ in direction D, or -1 if
+     *  that is off the board. */
+    static int target(int sq, int d, int dist) {
+        int c = colOf(sq) + UNIT_VECTORS[d][0] * dist,
+            r = rowOf(sq) + UNIT_VECTORS[d][1] * dist;
+        return onBoard(c, r) ? square(c, r) : -1;
+    }
+
+    /** Return the squares strictly between FROM and TO, where TO lies
+     *  from FROM in direction D. */
+    static long between(int from, int to, int d) {
+        return RAYS[d][from] & ~RAYS[d][to] & ~bit(to);
+    }
+
+    /** Return the squares of the whole line through SQ along direction D
+     *  (and its opposite), including SQ itself. */
+    static long line(int sq, int d) {
+        return LINES[d & 3][sq];
+    }
+
+    /** Write the legal moves of the side with pieces MINE, whose opponent
+     *  has pieces THEIRS, into BUFFER from index START, encoded as by
+     *  Move.encode, and return the index just past the last move written.
+     *  Like Board.generateMoves, but for positions held only as
+     *  bitboards: line counts are found by counting bits in line masks.
+     *  Allocates nothing. */
+    static int generateMoves(long mine, long theirs, int[] buffer,
+                             int start) {
+        long occupied = mine | theirs;
+        int end = start;
+        for (long rest = mine; rest != 0; rest &= rest - 1) {
+            int from = Long.numberOfTrailingZeros(rest);
+            for (int d = 0; d <= SEVEN; d++) {
+                int to = target(from, d,
+                                Long.bitCount(occupied & line(from, d)));
+                if (to >= 0 && (mine & bit(to)) == 0
+                        && (theirs & between(from, to, d)) == 0) {
+                    buffer[end] = Move.encode(from, to);
+                    end += 1;
+                }
+            }
+        }
+        return end;
+    }
+
+    /** Return true iff the pieces PIECES are contiguous. */
+    static boolean connected(long pieces) {
+        return (pieces & (pieces - 1)) == 0
+            || floodFill(pieces & -pieces, pieces) == pieces;
+    }
+
+    /** Return the squares of B together with every square adjacent
+     *  (orthogonally or diagonally) to one of them. */
+    static long neighbors(long b) {
+        long h = b | ((b << 1) & ~FILE_A) | ((b >>> 1) & ~FILE_H);
+        return h | (h << SIZE) | (h >>> SIZE);
+    }
+
+    /** Return the squares of MASK reachable from SEED through chains of
+     *  adjacent squares of MASK. SEED must be a subset of MASK. */
+    static long floodFill(long seed, long mask) {
+        long fill = seed, prev;
+        do {
+            prev = fill;
+            fill = neighbors(fill) & mask;
+        } while (fill != prev);
+        return fill;
+    }
+
+    /** The number of rows and columns on the board. */
+    static final int SIZE = 8;
+
+    /** The number of squares on the board. */
+    static final int SQUARES = SIZE * SIZE;
+
+    /** An array that maps direction to unit vectors.
+        The index is the direction d. */
+    static final int[][] UNIT_VECTORS = {{0, 1}, {1, 1}, {1, 0}
+        , {1, -1}, {0, -1}, {-1, -1}, {-1, 0}, {-1, 1}};
+
+    /** The number 7. */
+    private static final int SEVEN = 7;
+
+    /** The squares of column a (1) and column h (8). */
+    static final long FILE_A = 0x0101010101010101L, FILE_H = FILE_A << SEVEN;
+
+    /** Maps (dc + 1, dr + 1) to the direction whose unit vector is
+     *  (dc, dr). The entry for (0, 0) is unused. */
+    private static final int[][] DIRECTIONS = {{5, 6, 7}, {4, -1, 0}
+        , {3, 2, 1}};
+
+    /** RAYS[D][SQ] contains the squares beyond SQ in direction D, up to
+     *  the edge of the board. */
+    private static final long[][] RAYS = new long[SEVEN + 1][SQUARES];
+
+    /** LINES[D][SQ] contains the squares of the line through SQ along
+     *  direction D (0 <= D < 4) and its opposite, including SQ. */
+    private static final long[][] LINES = new long[4][SQUARES];
+
+    static {
+        for (int d = 0; d <= SEVEN; d++) {
+            for (int sq = 0; sq < SQUARES; sq++) {
+                for (int k = 1, t = target(sq, d, 1); t >= 0;
+                     k++, t = target(sq, d, k)) {
+                    RAYS[d][sq] |= bit(t);
+                }
+                LINES[d & 3][sq] |= RAYS[d][sq] | bit(sq);
+            }
+        }
+    }
+
+    /** Not instantiable. */
+    private BitBoards() {
+    }
+}
@@ -1,19 +1,21 @@
 package loa;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import static loa.BitBoards.*;
 import static loa.Side.*;
 import static loa.Piece.*;
 
 
 /** Represents the state of a game of Lines of Action. A Board is immutable.
- *  Its MutableBoard subclass allows moves to be made.
+ *  Its MutableBoard subclass allows moves to be made. The position is held
+ *  as one bitboard per side (see {@link BitBoards}); the Piece view given
+ *  by get(c, r) is derived from those bitboards.
  *  @author Nick Holt
  */
 class Board {
 
-    /** All of the moves made in this game thus far. */
-    private static ArrayList<Move> moves = new ArrayList<Move>();
-
     /** A Board whose initial contents are taken from
      *  INITIALCONTENTS and in which it is PLAYER's move. The resulting
      *  Board has
@@ -23,8 +25,29 @@ class Board {
      */
     Board(Piece[][] initialContents, Side player) {
         assert player != null && initialContents.length == 10;
-        config = initialContents;
-        _player = player;
+        for (int r = 1; r <= SIZE; r++) {
+            for (int c = 1; c <= SIZE; c++) {
+                Side side = initialContents[r][c].side();
+                if (side == BLACK || side == WHITE) {
+                    addPiece(square(c, r), side);
+                }
+            }
+        }
+        setTurn(player);
+    }
+
+    /** A Board with BLACK's pieces on the squares in the set BLACK and
+     *  WHITE's on those in WHITE, which are disjoint, in which it is
+     *  PLAYER's move. */
+    Board(long black, long white, Side player) {
+        assert (black & white) == 0;
+        for (long rest = black; rest != 0; rest &= rest - 1) {
+            addPiece(Long.numberOfTrailingZeros(rest), BLACK);
+        }
+        for (long rest = white; rest != 0; rest &= rest - 1) {
+            addPiece(Long.numberOfTrailingZeros(rest), WHITE);
+        }
+        setTurn(player);
     }
 
     /** A new board in the standard initial position. */
@@ -35,15 +58,44 @@ class Board {
     /** A Board whose initial contents and state are copied from
      *  BOARD. */
     Board(Board board) {
-        config = board.getConfigCopy();
-        _player = board.getPlayer();
+        for (Side side : SIDES) {
+            for (long rest = board.pieces(side); rest != 0;
+                 rest &= rest - 1) {
+                addPiece(Long.numberOfTrailingZeros(rest), side);
+            }
+        }
+        setTurn(board.getPlayer());
+        _historySize = board._historySize;
+        _historyMoves = Arrays.copyOf(board._historyMoves,
+                                      board._historyMoves.length);
+        _historyKeys = Arrays.copyOf(board._historyKeys,
+                                     board._historyKeys.length);
     }
 
     /** Return the contents of column C, row R, where 1 <= C,R <= 8,
      *  where column 1 corresponds to column 'a' in the standard
-     *  notation. */
+     *  notation. Squares off the board (column or row 0 or 9) hold BUF. */
     Piece get(int c, int r) {
-        return config[r][c];
+        if (!onBoard(c, r)) {
+            return BUF;
+        }
+        long b = bit(square(c, r));
+        if ((_pieces[BLACK.ordinal()] & b) != 0) {
+            return BP;
+        } else if ((_pieces[WHITE.ordinal()] & b) != 0) {
+            return WP;
+        }
+        return EMP;
+    }
+
+    /** Return the bitboard of SIDE's pieces. SIDE is BLACK or WHITE. */
+    long pieces(Side side) {
+        return _pieces[side.ordinal()];
+    }
+
+    /** Return the bitboard of all occupied squares. */
+    long occupied() {
+        return _pieces[BLACK.ordinal()] | _pieces[WHITE.ordinal()];
     }
 
     /** Return the contents of the square SQ.  SQ must be the
@@ -83,82 +135,65 @@ class Board {
                 || move.getCol1() > 8 || move.getRow1() > 8
                 || move.getCol0() < 1 || move.getRow0() < 1
                 || move.getCol1() < 1 || move.getRow1() < 1) {
-            Reporter.debug(2, "Move illegal: out of board.");
+            if (Reporter.isEnabled(2)) {
+                Reporter.debug(2, "Move illegal: out of board.");
+            }
             return false;
         }
         if (!legalDirectionCheck(move)) {
             return false;
         }
-        Piece origin = get(move.getCol0(), move.getRow0());
-        if (origin.side() == _player.opponent()
-                || origin.side() == null) {
-            Reporter.debug(2, "Move illegal: cannot"
-                           + "move an opponent or empty space");
-            Reporter.debug(3, "Origin: (%d, %d). Destination (%d, %d)"
-                    , move.getCol0(), move.getRow0()
-                    , move.getCol1(), move.getRow1());
+        int length = move.length();
+        if (length == 0) {
+            if (Reporter.isEnabled(2)) {
+                Reporter.debug(2, "Move illegal: must move at least"
+                               + " one square.");
+            }
             return false;
         }
-        ArrayList<ArrayList<Piece>> pieces
-            = getLinePieces(move.getCol0(), move.getRow0()
-                    , move.getCol1(), move.getRow1());
-        ArrayList<Piece> to = pieces.get(0),
-                fro = pieces.get(1);
-        int count = 0, dist = -1;
-        boolean passed = false;
-        for (Piece piece : to) {
-            Reporter.debug(4, "dist: %d, move length: %d", dist, move.length());
-            dist++;
-            if (dist == move.length()) {
-                if (piece.side() == _player.opponent().opponent()) {
-                    Reporter.debug(2, "Move illegal: "
-                                   + "can't land on a friendly piece");
-                    return false;
-                }
-                passed = true;
+        int c0 = move.getCol0(), r0 = move.getRow0(),
+            from = square(c0, r0), to = square(move.getCol1(), move.getRow1());
+        long mine = pieces(_player), theirs = pieces(_player.opponent());
+        if ((mine & bit(from)) == 0) {
+            if (Reporter.isEnabled(2)) {
+                Reporter.debug(2, "Move illegal: cannot"
+                               + "move an opponent or empty space");
+                Reporter.debug(3, "Origin: (%d, %d). Destination (%d, %d)"
+                        , move.getCol0(), move.getRow0()
+                        , move.getCol1(), move.getRow1());
             }
-            if (!passed) {
-                if (piece.side() == _player.opponent()) {
-                    Reporter.debug(2, "Move illegal: "
-                                   + "can't jump over an enemy (%s)"
-                            , _player.opponent());
-                    return false;
-                }
-                if (piece.side() != null) {
-                    count++;
-                }
-            } else {
-                if (piece.side() != null) {
-                    count++;
-                } else {
-                    continue;
-                }
+            return false;
+        }
+        int dc = (move.getCol1() - c0) / length,
+            dr = (move.getRow1() - r0) / length;
+        int d = direction(dc, dr);
+        if ((theirs & between(from, to, d)) != 0) {
+            if (Reporter.isEnabled(2)) {
+                Reporter.debug(2, "Move illegal: "
+                               + "can't jump over an enemy (%s)"
+                        , _player.opponent());
             }
+            return false;
         }
-        return isLegal2(fro, count, move.length());
-    }
-
-    /** The second part of isLegal() to pass the stylecheck.
-     *  FRO, COUNT, MOVELENGTH. Return the result.
-     */
-    private boolean isLegal2(ArrayList<Piece> fro
-            , int count, int moveLength) {
-        for (Piece piece : fro) {
-            if (piece.side() != null) {
-                count++;
-            } else {
-                continue;
+        if ((mine & bit(to)) != 0) {
+            if (Reporter.isEnabled(2)) {
+                Reporter.debug(2, "Move illegal: "
+                               + "can't land on a friendly piece");
             }
+            return false;
         }
-        if (count != moveLength) {
-            Reporter.debug(2, "Move illegal:"
-                           + "Move length must equal number of pieces in line");
-            Reporter.debug(3, "count: %d, move"
-                           + "length: %d", count, moveLength);
+        int count = lineCount(from, d);
+        if (count != length) {
+            if (Reporter.isEnabled(2)) {
+                Reporter.debug(2, "Move illegal:"
+                               + "Move length must equal number of pieces"
+                               + " in line");
+                Reporter.debug(3, "count: %d, move"
+                               + "length: %d", count, length);
+            }
             return false;
-        } else {
-            return true;
         }
+        return true;
     }
 
     /** Sub method to get past style check. Check's
@@ -167,7 +202,10 @@ class Board {
         int cd = Math.abs(move.getCol1() - move.getCol0());
         int cr = Math.abs(move.getRow1() - move.getRow0());
         if (cd != 0 && cr != 0 && cd != cr) {
-            Reporter.debug(2, "Move illegal: must move in allowed direction.");
+            if (Reporter.isEnabled(2)) {
+                Reporter.debug(2, "Move illegal: must move in allowed"
+                               + " direction.");
+            }
             return false;
         }
         return true;
@@ -175,49 +213,47 @@ class Board {
 
     /** Return an ArrayList of all legal moves for current player. */
     public ArrayList<Move> legalMoves() {
-        ArrayList<Move> legalMoves = new ArrayList<Move>();
-        int x = 0, y = 0;
-        for (Piece[] row : config) {
-            for (Piece piece : row) {
-                if (piece.side() == _player.opponent().opponent()) {
-                    Reporter.debug(5, "AI piece found at (%d, %d)", x, y);
-                    int c = x; int r = y;
-                    for (int d = 0; d <= SEVEN; d++) {
-                        ArrayList<ArrayList<Piece>> line
-                            = getLinePieces(c, r, d);
-                        int distance = 0;
-                        for (Piece neighbor : line.get(0)) {
-                            if (neighbor.side() != null) {
-                                distance++;
-                            }
-                        }
-                        for (Piece neighbor : line.get(1)) {
-                            if (neighbor.side() != null) {
-                                distance++;
-                            }
-                        }
-                        Move move = Move.create(c, r, moveC(c, d, distance)
-                                                , moveR(r, d, distance));
-                        if (isLegal(move)) {
-                            Reporter.debug(4, "legalMoves()"
-                                           + "generated a legal"
-                                           + "move with origin"
-                                           + "(%d, %d) and"
-                                           + "destination (%d, %d)."
-                                           + "Player is %s.", move.getCol0()
-                                           , move.getRow0(), move.getCol1()
-                                           , move.getRow1(), _player);
-                            legalMoves.add(move);
-                        }
-                    }
+        int[] buffer = new int[MAX_MOVES];
+        int count = generateMoves(buffer, 0);
+        ArrayList<Move> legalMoves = new ArrayList<Move>(count);
+        for (int i = 0; i < count; i++) {
+            legalMoves.add(Move.create(buffer[i]));
+        }
+        if (Reporter.isEnabled(3)) {
+            Reporter.debug(3, "legalMoves found: %s", legalMoves);
+        }
+        return legalMoves;
+    }
+
+    /** Write the legal moves of the player on move into BUFFER, starting
+     *  at index START, encoded as by {@link Move#encode}, and return the
+     *  index just past the last move written. BUFFER must have room for
+     *  MAX_MOVES moves after START, so a search can give each ply its own
+     *  slice of a single buffer. Allocates nothing. */
+    int generateMoves(int[] buffer, int start) {
+        if (Counters.ENABLED) {
+            Counters.MOVE_GENERATIONS.increment();
+        }
+        long mine = pieces(_player), theirs = pieces(_player.opponent());
+        int end = start;
+        for (long rest = mine; rest != 0; rest &= rest - 1) {
+            int from = Long.numberOfTrailingZeros(rest);
+            for (int d = 0; d <= SEVEN; d++) {
+                int to = target(from, d, lineCount(from, d));
+                if (to >= 0 && (mine & bit(to)) == 0
+                        && (theirs & between(from, to, d)) == 0) {
+                    buffer[end] = Move.encode(from, to);
+                    end += 1;
                 }
-                x++;
             }
-            x = 0;
-            y++;
         }
-        Reporter.debug(3, "legalMoves found: %s", legalMoves);
-        return legalMoves;
+        return end;
+    }
+
+    /** Return true iff the move with code MOVE, made by the player on
+     *  move, would capture a piece. */
+    boolean isCapture(int move) {
+        return (pieces(_player.opponent()) & bit(Move.to(move))) != 0;
     }
 
     /** Return true iff the game is currently over.  A game is over if
@@ -226,52 +262,74 @@ class Board {
         return piecesContiguous(BLACK) || piecesContiguous(WHITE);
     }
 
-    /** Return true iff PLAYER's pieces are continguous. */
+    /** Return true iff PLAYER's pieces are continguous. Positions whose
+     *  Euler number shows more than one group are rejected without
+     *  examining the pieces; otherwise one flood fill decides. */
     boolean piecesContiguous(Side player) {
-        ArrayList<int[]> remaining = getCoordinates(player);
-        if (remaining.size() <= 1) {
+        if (Counters.ENABLED) {
+            Counters.CONTIGUITY_CHECKS.increment();
+        }
+        long mine = pieces(player);
+        if ((mine & (mine - 1)) == 0) {
             return true;
         }
-        ArrayList<int[]> grouped = new ArrayList<int[]>();
-        grouped.add(remaining.get(0)); remaining.remove(0);
-        boolean connected, allAway;
-        while (remaining.size() != 0) {
-            allAway = true;
-            for (int[] piece : remaining) {
-                connected = isConnected(grouped, piece);
-                if (connected) {
-                    grouped.add(piece); remaining.remove(piece);
-                    allAway = false;
-                    break;
-                }
-            }
-            if (allAway) {
-                return false;
+        if (_quadSums[player.ordinal()] > 4) {
+            if (Reporter.isEnabled(4)) {
+                Reporter.debug(4, "Contiguous check rejected by"
+                               + " quad count.");
             }
+            return false;
         }
-        Reporter.debug(4, "Contiguous check found %d unconnected pieces."
-                , remaining.size());
-        return true;
+        return connected(mine);
+    }
+
+    /** Return the number of PLAYER's pieces. */
+    int pieceCount(Side player) {
+        return Long.bitCount(pieces(player));
+    }
+
+    /** Return the sum over PLAYER's pieces of their centrality: 0 on the
+     *  edge of the board, rising by 1 for each ring inwards to 3 on the
+     *  four central squares. */
+    int centrality(Side player) {
+        return _centrality[player.ordinal()];
+    }
+
+    /** Return N * I, where N is the number of PLAYER's pieces and I the
+     *  sum of their squared distances from their center of mass (so that
+     *  N * N times the mean squared distance is an integer). */
+    int spread(Side player) {
+        int s = player.ordinal(), n = pieceCount(player);
+        return n * _squareSums[s] - _colSums[s] * _colSums[s]
+            - _rowSums[s] * _rowSums[s];
+    }
+
+    /** Return the Euler number of PLAYER's pieces under 8-connectivity:
+     *  the number of groups of pieces less the number of holes in them.
+     *  It is maintained incrementally from counts of 2x2 quads. */
+    int eulerNumber(Side player) {
+        return _quadSums[player.ordinal()] / 4;
     }
 
     /** Return the total number of moves that have been made (and not
      *  retracted).  Each valid call to makeMove with a normal move increases
      *  this number by 1. */
     int movesMade() {
-        return moves.size();
+        return _historySize;
     }
 
     /** Returns move #K used to reach the current position, where
      *  0 <= K < movesMade().  Does not include retracted moves. */
     Move getMove(int k) {
-        return moves.get(k);
+        return Move.create(_historyMoves[k] & ~CAPTURE_FLAG);
     }
 
     @Override
     public String toString() {
         String result = "===";
-        for (Piece[] row : config) {
-            for (Piece piece : row) {
+        for (int r = 0; r <= SIZE + 1; r++) {
+            for (int c = 0; c <= SIZE + 1; c++) {
+                Piece piece = get(c, r);
                 if (!piece.textName().equals("*")) {
                     result += piece.textName() + " ";
                 }
@@ -285,21 +343,16 @@ class Board {
         return result;
     }
 
-    /** @return config. */
-    public Piece[][] getConfig() {
-        return config;
-    }
-
-    /** @return a copy of my configuration. */
+    /** @return a copy of my configuration, in the 10x10 form (including
+     *  buffer layers) accepted by the constructor. */
     public Piece[][] getConfigCopy() {
-        Piece[][] result = new Piece[config.length][config.length];
-        for (int i = 0; i < config.length; i++) {
-            for (int j = 0; j < config[i].length; j++) {
-                result[i][j] = config[i][j];
+        Piece[][] result = new Piece[SIZE + 2][SIZE + 2];
+        for (int r = 0; r < result.length; r++) {
+            for (int c = 0; c < result[r].length; c++) {
+                result[r][c] = get(c, r);
             }
         }
         return result;
-
     }
 
     /** @return _player. */
@@ -307,160 +360,152 @@ class Board {
         return _player;
     }
 
-    /** Adds a MOVE to MOVES. */
-    public void addMove(Move move) {
-        moves.add(move);
+    /** Returns true iff move #K (as for getMove) captured a piece. */
+    boolean getCapture(int k) {
+        return (_historyMoves[k] & CAPTURE_FLAG) != 0;
     }
 
-    /** Removes the last move from MOVES. */
-    public void removeMove() {
-        moves.remove(moves.size() - 1);
+    /** Returns the hash key of the position in which move #K (as for
+     *  getMove) was made. */
+    long getKey(int k) {
+        return _historyKeys[k];
     }
 
-    /** Returns LETTERS. */
-    public static char[] getLetters() {
-        return LETTERS;
+    /** Record MOVE, the code of a move that captured a piece iff CAPTURE,
+     *  as the last move made, from a position whose hash key was KEY. */
+    void addMove(int move, boolean capture, long key) {
+        if (_historySize == _historyMoves.length) {
+            int size = 2 * _historySize;
+            _historyMoves = Arrays.copyOf(_historyMoves, size);
+            _historyKeys = Arrays.copyOf(_historyKeys, size);
+        }
+        _historyMoves[_historySize] = capture ? move | CAPTURE_FLAG : move;
+        _historyKeys[_historySize] = key;
+        _historySize += 1;
     }
 
-    /** A utility method that takes a starting position p =(C, R) and
-     *  a direction D and returns an ArrayList of two ArrayLists.
-     *  The first of these ArrayLists contains the pieces on the line
-     *  starting from p and pointing in D, while the second ArrayList
-     *  contains the pieces starting from p - 1 and pointing in -D.
-     *  THESE LISTS INCLUDE EMPTY SPACES AS PIECES.
-     *  0 <= D < 8, where the number refers to one of the
-     *  8 compass directions, counted clockwise with north = 0.
-     */
-    ArrayList<ArrayList<Piece>> getLinePieces(int c, int r, int d) {
-        Reporter.debug(3, "getLinePieces() called"
-                       + "with origin (%d, %d) and direction %d."
-                       , c, r, d);
-        int colUnit = UNIT_VECTORS[d][0], rowUnit = UNIT_VECTORS[d][1]
-                , col = c + colUnit, row = r + rowUnit;
-        Reporter.debug(4, "Direction: %d. colUnit: %d."
-                       + "rowUnit: %d", d, colUnit, rowUnit);
-        ArrayList<Piece> l0 = new ArrayList<Piece>()
-                , l1 = new ArrayList<Piece>();
-        l0.add(get(c, r));
-        for (Piece target = get(col, row);
-             target.side() != BUFFER;
-             col += colUnit, row += rowUnit, target = get(col, row)) {
-            l0.add(target);
-        }
-        col = c - colUnit; row = r - rowUnit;
-        for (Piece target = get(col, row);
-             target.side() != BUFFER;
-             col -= colUnit, row -= rowUnit, target = get(col, row)) {
-            l1.add(target);
-        }
-        ArrayList<ArrayList<Piece>> result = new ArrayList<ArrayList<Piece>>();
-        result.add(l0); result.add(l1);
-        Reporter.debug(3, "Pieces in the positive direction: %s\n"
-                       + "Pieces in the negative direction: %s", l0, l1);
-        return result;
+    /** Removes the last move from the history. */
+    void removeMove() {
+        assert _historySize > 0;
+        _historySize -= 1;
     }
 
-    /** A utility method that takes a starting position (C0, R0) and
-     *  end position (C1, R1) and returns an ArrayList of two ArrayLists,
-     *  as per {@link getLinePieces(int c, int r, int d)}.
-     */
-    ArrayList<ArrayList<Piece>> getLinePieces(int c0, int r0
-            , int c1, int r1) {
-        Move temp =  Move.create(c0, r0, c1, r1);
-        int cd = (c1 - c0) / temp.length()
-                , rd = (r1 - r0) / temp.length()
-                , d = 0;
-        Reporter.debug(6, "getLinePieces(int, int, int, int)"
-                       + "variables: c0 = %d,"
-                       + "r0 = %d, c1 = %d, r1 = %d, temp.length()"
-                       + "= %d", c0, r0, c1, r1, temp.length());
-        Reporter.debug(5, "Direction generation pieces: cd = %d, rd = %d,"
-                , cd, rd);
-        assert cd >= 0 && rd >= 0
-                && cd <= 1 && rd <= 1;
-        if (cd == 0) {
-            if (rd == -1) {
-                d = FOUR;
-            } else if (rd == 1) {
-                d = ZERO;
-            } else {
-                assert false;
-            }
-        } else if (cd == 1) {
-            if (rd == -1) {
-                d = THREE;
-            } else if (rd == 0) {
-                d = TWO;
-            } else if (rd == 1) {
-                d = ONE;
-            } else {
-                assert false;
-            }
-        } else if (cd == -1) {
-            if (rd == -1) {
-                d = FIVE;
-            } else if (rd == 0) {
-                d = SIX;
-            } else if (rd == 1) {
-                d = SEVEN;
-            } else {
-                assert false;
-            }
-        } else {
-            assert false;
-        }
-        return getLinePieces(c0, r0, d);
-    }
-
-    /** A utility method that returns an ArrayList of coordinates in the
-     *  form {x, y} of PLAYER's pieces on the board. x and y are not
-     *  indices. I.E. x = 1 refers to the first column.*/
-    ArrayList<int[]> getCoordinates(Side player) {
-        ArrayList<int[]> result = new ArrayList<int[]>();
-        int y = 0;
-        for (Piece[] row : config) {
-            int x = 0;
-            for (Piece piece: row) {
-                if (piece.side() != player.opponent()
-                        && piece.side() != null
-                        && piece.side() != BUFFER) {
-                    int[] temp = new int[2];
-                    temp[0] = x; temp[1] = y;
-                    result.add(temp);
-                }
-                x++;
-            }
-            y++;
+    /** Place a piece of SIDE on the empty square SQ. For use by
+     *  constructors and MutableBoard only. */
+    void addPiece(int sq, Side side) {
+        assert (occupied() & bit(sq)) == 0;
+        int s = side.ordinal();
+        _quadSums[s] -= quadSum(_pieces[s], sq);
+        _pieces[s] |= bit(sq);
+        _key ^= PIECE_KEYS[s][sq];
+        _quadSums[s] += quadSum(_pieces[s], sq);
+        for (int k = 0; k <= THREE; k++) {
+            _lineCounts[LINES[k][sq]] += 1;
         }
-        return result;
+        int c = colOf(sq), r = rowOf(sq);
+        _colSums[s] += c;
+        _rowSums[s] += r;
+        _squareSums[s] += c * c + r * r;
+        _centrality[s] += CENTRALITY[sq];
+    }
+
+    /** Remove SIDE's piece from square SQ. For use by MutableBoard only. */
+    void removePiece(int sq, Side side) {
+        assert (pieces(side) & bit(sq)) != 0;
+        int s = side.ordinal();
+        _quadSums[s] -= quadSum(_pieces[s], sq);
+        _pieces[s] &= ~bit(sq);
+        _key ^= PIECE_KEYS[s][sq];
+        _quadSums[s] += quadSum(_pieces[s], sq);
+        for (int k = 0; k <= THREE; k++) {
+            _lineCounts[LINES[k][sq]] -= 1;
+        }
+        int c = colOf(sq), r = rowOf(sq);
+        _colSums[s] -= c;
+        _rowSums[s] -= r;
+        _squareSums[s] -= c * c + r * r;
+        _centrality[s] -= CENTRALITY[sq];
     }
 
-    /** A utility method that returns true if PIECE (represented by
-     *  an array of coordinates) is connected to any other piece in
-     *  PIECES, and false otherwise. Pieces are considered connected
-     *  if pieces are one square away from each other.*/
-    private static boolean isConnected(ArrayList<int[]> pieces
-            , int[] piece) {
-        for (int[] target : pieces) {
-            int xd = Math.abs(piece[0] - target[0])
-                    , yd = Math.abs(piece[1] - target[1]);
-            if (xd <= 1 && yd <= 1) {
-                return true;
+    /** Make it PLAYER's move. For use by MutableBoard only. */
+    void setTurn(Side player) {
+        if ((player == WHITE) != (_player == WHITE)) {
+            _key ^= WHITE_TO_MOVE_KEY;
+        }
+        _player = player;
+    }
+
+    /** Return the Zobrist key of this position, which covers the pieces
+     *  and the side to move. It is maintained incrementally as pieces are
+     *  added and removed. */
+    long hashKey() {
+        return _key;
+    }
+
+    /** Return the Zobrist key of this position computed from scratch. It
+     *  always equals hashKey(). */
+    long computeHashKey() {
+        long key = _player == WHITE ? WHITE_TO_MOVE_KEY : 0;
+        for (int s = 0; s < _pieces.length; s++) {
+            for (long rest = _pieces[s]; rest != 0; rest &= rest - 1) {
+                key ^= PIECE_KEYS[s][Long.numberOfTrailingZeros(rest)];
             }
         }
-        return false;
+        return key;
     }
 
-    /** A utility method that returns a new row based on
-     *  original row C, direction D, and DISTANCE. */
-    private int moveC(int c, int d, int distance) {
-        return c + UNIT_VECTORS[d][0] * distance;
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Board)) {
+            return false;
+        }
+        Board board2 = (Board) obj;
+        return _player == board2._player
+            && _pieces[0] == board2._pieces[0]
+            && _pieces[1] == board2._pieces[1];
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (_key ^ (_key >>> 32));
+    }
+
+    /** Returns LETTERS. */
+    public static char[] getLetters() {
+        return LETTERS;
     }
 
-    /** A utility method that returns a new row based on
-     *  original row R, direction D, and DISTANCE. */
-    private int moveR(int r, int d, int distance) {
-        return r + UNIT_VECTORS[d][1] * distance;
+    /** Return the number of pieces (of either side) on the line through
+     *  square SQ in direction D, where 0 <= D < 8 is one of the 8 compass
+     *  directions, counted clockwise with north = 0. Opposite directions
+     *  share a line. This is the distance a piece on SQ moves along D. */
+    int lineCount(int sq, int d) {
+        return _lineCounts[LINES[d & THREE][sq]];
+    }
+
+    /** Return the sum of QUAD_WEIGHTS over the four 2x2 quads of PIECES
+     *  that contain square SQ. */
+    private static int quadSum(long pieces, int sq) {
+        int c = colOf(sq), r = rowOf(sq), sum = 0;
+        for (int qc = c - 1; qc <= c; qc++) {
+            for (int qr = r - 1; qr <= r; qr++) {
+                int pattern = pieceAt(pieces, qc, qr)
+                    | (pieceAt(pieces, qc + 1, qr) << 1)
+                    | (pieceAt(pieces, qc, qr + 1) << 2)
+                    | (pieceAt(pieces, qc + 1, qr + 1) << 3);
+                sum += QUAD_WEIGHTS[pattern];
+            }
+        }
+        return sum;
+    }
+
+    /** Return 1 if PIECES has a piece at column C, row R, and 0 if it
+     *  does not or the square is off the board. */
+    private static int pieceAt(long pieces, int c, int r) {
+        if (!onBoard(c, r)) {
+            return 0;
+        }
+        return (int) (pieces >>> square(c, r)) & 1;
     }
 
     /** Returns the (index + 1) of C in LETTERS. Assumes LETTERS
@@ -475,12 +520,48 @@ class Board {
         return 0;
     }
 
-    /** The current configuration of THIS. */
-    private Piece[][] config;
+    /** The pieces of THIS, one bitboard per side, indexed by
+     *  Side.ordinal(). */
+    private final long[] _pieces = new long[2];
+
+    /** The number of pieces on each line of the board, indexed as by
+     *  LINES. */
+    private final int[] _lineCounts = new int[NUM_LINES];
+
+    /** For each side, the sums of the columns, of the rows and of the
+     *  squared columns and rows of its pieces, and of their centrality. */
+    private final int[] _colSums = new int[2], _rowSums = new int[2],
+        _squareSums = new int[2], _centrality = new int[2];
+
+    /** For each side, the sum of QUAD_WEIGHTS over all 2x2 quads of its
+     *  pieces (including quads overhanging the edge), which is four times
+     *  its Euler number. */
+    private final int[] _quadSums = new int[2];
 
     /** The player currently playing THIS. */
     private Side _player;
 
+    /** The Zobrist key of THIS, as returned by hashKey(). */
+    private long _key;
+
+    /** The moves made to reach this position, oldest first: the first
+     *  _historySize entries of _historyMoves are move codes, or'ed with
+     *  CAPTURE_FLAG if they captured, and those of _historyKeys are the
+     *  hash keys of the positions they were made in.  The arrays start
+     *  with HISTORY_CAPACITY entries and are doubled when full. */
+    private int[] _historyMoves = new int[HISTORY_CAPACITY];
+    /** See _historyMoves. */
+    private long[] _historyKeys = new long[HISTORY_CAPACITY];
+    /** The number of moves in the history. */
+    private int _historySize;
+
+    /** Marks a move in _historyMoves that captured a piece; it lies above
+     *  every move code. */
+    private static final int CAPTURE_FLAG = Move.NUM_CODES;
+
+    /** The initial number of entries in the history arrays. */
+    private static final int HISTORY_CAPACITY = 64;
+
     /** The standard initial configuration for Lines of Action. */
     static final Piece[][] INITIAL_PIECES = {
         { BUF, BUF, BUF, BUF, BUF, BUF, BUF, BUF, BUF, BUF  },
@@ -509,16 +590,77 @@ class Board {
         { BUF, BUF, BUF, BUF, BUF, BUF, BUF, BUF, BUF, BUF  }
     };
 
+    /** The two sides that own pieces. */
+    private static final Side[] SIDES = {BLACK, WHITE};
+
     /** Partial alphabet. */
     private static final char[] LETTERS = {'a', 'b', 'c', 'd', 'e'
         , 'f', 'g', 'h'};
 
-    /** Integers 0 - 7. */
-    private static final int ZERO = 0, ONE = 1, TWO = 2, THREE = 3
-            , FOUR = 4, FIVE = 5, SIX = 6, SEVEN = 7;
+    /** Integers 3 and 7. */
+    private static final int THREE = 3, SEVEN = 7;
 
-    /** An array that maps direction to unit vectors.
-        The index is the direction d. */
-    private static final int[][] UNIT_VECTORS = {{0, 1}, {1, 1}, {1, 0}
-        , {1, -1}, {0, -1}, {-1, -1}, {-1, 0}, {-1, 1}};
+    /** The weight of each 2x2 quad in the Euler number sum, indexed by
+     *  the quad's pattern of occupied squares (bit 0 lower left, bit 1
+     *  lower right, bit 2 upper left, bit 3 upper right): +1 for one
+     *  piece, -1 for three, -2 for two diagonal pieces, and 0 otherwise. */
+    private static final int[] QUAD_WEIGHTS = {
+        0, 1, 1, 0, 1, 0, -2, -1, 1, -2, 0, -1, 0, -1, -1, 0
+    };
+
+    /** The largest number of legal moves a side can have: 12 pieces,
+     *  each with at most one move in each of 8 directions. */
+    static final int MAX_MOVES = 96;
+
+    /** Offsets in _lineCounts of the counts for columns, diagonals, rows
+     *  and antidiagonals, and the total number of lines. */
+    private static final int COL_BASE = 0, DIAG_BASE = COL_BASE + SIZE,
+        ROW_BASE = DIAG_BASE + 2 * SIZE - 1, ANTI_BASE = ROW_BASE + SIZE,
+        NUM_LINES = ANTI_BASE + 2 * SIZE - 1;
+
+    /** LINES[K][SQ] is the index in _lineCounts of the line through SQ
+     *  along direction K (0 <= K < 4). */
+    private static final int[][] LINES = new int[THREE + 1][SQUARES];
+
+    static {
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int c = colOf(sq), r = rowOf(sq);
+            LINES[0][sq] = COL_BASE + c - 1;
+            LINES[1][sq] = DIAG_BASE + c - r + SIZE - 1;
+            LINES[2][sq] = ROW_BASE + r - 1;
+            LINES[THREE][sq] = ANTI_BASE + c + r - 2;
+        }
+    }
+
+    /** Zobrist keys: PIECE_KEYS[S][SQ] is the key of a piece of the side
+     *  with ordinal S on square SQ. */
+    private static final long[][] PIECE_KEYS = new long[2][SQUARES];
+
+    /** The Zobrist key of having WHITE on move. */
+    private static final long WHITE_TO_MOVE_KEY;
+
+    /** Seed for the Zobrist keys, fixed so that keys (and any tables
+     *  built from them) are the same in every run. */
+    private static final long ZOBRIST_SEED = 0x4c4f41L;
+
+    static {
+        Random keys = new Random(ZOBRIST_SEED);
+        for (long[] sideKeys : PIECE_KEYS) {
+            for (int sq = 0; sq < SQUARES; sq++) {
+                sideKeys[sq] = keys.nextLong();
+            }
+        }
+        WHITE_TO_MOVE_KEY = keys.nextLong();
+    }
+
+    /** The centrality of each square (see centrality(Side)). */
+    private static final int[] CENTRALITY = new int[SQUARES];
+
+    static {
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int c = colOf(sq), r = rowOf(sq);
+            CENTRALITY[sq] = Math.min(Math.min(c - 1, SIZE - c),
+                                      Math.min(r - 1, SIZE - r));
+        }
+    }
 }
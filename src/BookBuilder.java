@@ -0,0 +1,192 @@
+package loa;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static loa.Side.*;
+
+/** Builds an OpeningBook by searching the opening.  Starting from the
+ *  standard position with either side to move, every move of each book
+ *  position is scored by a fixed-depth search, and the best moves become
+ *  book moves, weighted by how close they come to the best.  The
+ *  positions they lead to are expanded in turn, to a given number of
+ *  plies.  The positions of each ply are searched in parallel.
+ *  @author Nick Holt */
+class BookBuilder {
+
+    /** A builder of books PLIES plies deep, which searches each move to
+     *  DEPTH plies on THREADS threads. */
+    BookBuilder(int plies, int depth, int threads) {
+        _plies = plies;
+        _depth = depth;
+        _threads = threads;
+    }
+
+    /** Build the book and write it to the file named FILENAME. */
+    void build(String fileName) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        TranspositionTable table =
+            new TranspositionTable(Game.DEFAULT_HASH_SIZE * _threads);
+        ArrayList<Entry> entries = new ArrayList<Entry>();
+        try {
+            List<Board> positions = new ArrayList<Board>();
+            positions.add(new Board(Board.INITIAL_PIECES, WHITE));
+            positions.add(new Board(Board.INITIAL_PIECES, BLACK));
+            HashSet<Long> seen = new HashSet<Long>();
+            for (int ply = 0; ply < _plies && !positions.isEmpty(); ply++) {
+                ArrayList<Future<List<Entry>>> results =
+                    new ArrayList<Future<List<Entry>>>();
+                for (Board position : positions) {
+                    if (seen.add(position.hashKey())) {
+                        results.add(pool.submit(new Callable<List<Entry>>() {
+                            @Override
+                            public List<Entry> call() {
+                                return bookMoves(position, table);
+                            }
+                        }));
+                    }
+                }
+                positions = new ArrayList<Board>();
+                for (Future<List<Entry>> result : results) {
+                    for (Entry entry : result.get()) {
+                        entries.add(entry);
+                        MutableBoard next = new MutableBoard(entry.position);
+                        next.makeMove(entry.move);
+                        if (!next.gameOver()) {
+                            positions.add(next);
+                        }
+                    }
+                }
+                Reporter.debug(1, "Book ply %d: %d moves.", ply,
+                               entries.size());
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IOException("book building failed", excp);
+        } finally {
+            pool.shutdownNow();
+        }
+        write(entries, fileName);
+        System.out.printf("Wrote %d book moves to %s.%n", entries.size(),
+                          fileName);
+    }
+
+    /** Return the book moves of POSITION, searching with TABLE. */
+    private List<Entry> bookMoves(Board position, TranspositionTable table) {
+        int[] moves = new int[Board.MAX_MOVES];
+        int count = position.generateMoves(moves, 0);
+        ArrayList<Entry> scored = new ArrayList<Entry>();
+        for (int i = 0; i < count; i += 1) {
+            scored.add(new Entry(position, moves[i],
+                                 score(position, moves[i], table)));
+        }
+        Collections.sort(scored);
+        ArrayList<Entry> result = new ArrayList<Entry>();
+        for (Entry entry : scored) {
+            int loss = scored.get(0).score - entry.score;
+            if (result.size() == BRANCHES || loss > MARGIN) {
+                break;
+            }
+            entry.weight = MARGIN + 1 - loss;
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /** Return the score of MOVE in POSITION for the side making it,
+     *  searched to my depth with TABLE. */
+    private int score(Board position, int move, TranspositionTable table) {
+        MutableBoard board = new MutableBoard(position);
+        Side mover = board.turn();
+        board.makeMove(move);
+        if (board.piecesContiguous(mover)) {
+            return Search.WIN;
+        }
+        Search search = new Search(board, table);
+        search.setSilent();
+        if (search.bestMove(_depth - 1) == 0) {
+            return Search.WIN;
+        }
+        return -search.score();
+    }
+
+    /** Write ENTRIES, sorted by key, to the file named FILENAME in the
+     *  format of OpeningBook. */
+    private static void write(List<Entry> entries, String fileName)
+        throws IOException {
+        Collections.sort(entries, BY_KEY);
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            for (Entry entry : entries) {
+                out.writeLong(entry.key);
+                out.writeShort(entry.move);
+                out.writeShort(entry.weight);
+                out.writeInt(entry.score);
+            }
+        }
+    }
+
+    /** A scored move in a position.  Entries are ordered best first. */
+    private static class Entry implements Comparable<Entry> {
+
+        /** The move MOVE, scoring SCORE, in POSITION. */
+        Entry(Board position, int move, int score) {
+            this.position = position;
+            this.key = position.hashKey();
+            this.move = move;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Integer.compare(other.score, score);
+        }
+
+        /** The position. */
+        final Board position;
+        /** The hash key of the position. */
+        final long key;
+        /** The code of the move. */
+        final int move;
+        /** The score of the move for the side making it. */
+        final int score;
+        /** The relative chance of the move being played. */
+        int weight;
+    }
+
+    /** Orders entries by the keys of their positions. */
+    private static final Comparator<Entry> BY_KEY = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e0, Entry e1) {
+            return Long.compare(e0.key, e1.key);
+        }
+    };
+
+    /** The depth of the book, in plies. */
+    private final int _plies;
+    /** The depth to which moves are searched, in plies. */
+    private final int _depth;
+    /** The number of searching threads. */
+    private final int _threads;
+
+    /** The most book moves in a position. */
+    private static final int BRANCHES = 3;
+    /** A move scoring more than this below the best is not a book move. */
+    private static final int MARGIN = 20;
+
+    /** The default depth of a book, in plies. */
+    static final int DEFAULT_PLIES = 4;
+    /** The default depth to which book moves are searched, in plies. */
+    static final int DEFAULT_DEPTH = 5;
+}
@@ -0,0 +1,52 @@
+package loa;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counts of the engine's hot operations, for profiling.  Counting is on
+ *  only if the JVM is started with -Dloa.counters=true.  Since ENABLED is
+ *  a constant, the JIT removes the guarded increments when it is off, so
+ *  call sites should read
+ *      if (Counters.ENABLED) {
+ *          Counters.NODES.increment();
+ *      }
+ *  The counters are shared by all threads and may be printed at any time
+ *  with dump.
+ *  @author Nick Holt */
+final class Counters {
+
+    /** Not instantiable. */
+    private Counters() {
+    }
+
+    /** True iff counting is on. */
+    static final boolean ENABLED = Boolean.getBoolean("loa.counters");
+
+    /** Positions searched by Search. */
+    static final LongAdder NODES = new LongAdder();
+    /** Calls to Board.generateMoves. */
+    static final LongAdder MOVE_GENERATIONS = new LongAdder();
+    /** Calls to Board.piecesContiguous. */
+    static final LongAdder CONTIGUITY_CHECKS = new LongAdder();
+    /** Random games played by Playout. */
+    static final LongAdder PLAYOUTS = new LongAdder();
+
+    /** Print the counters on OUT. */
+    static void dump(PrintStream out) {
+        if (!ENABLED) {
+            out.println("Counters are off; run with -Dloa.counters=true.");
+            return;
+        }
+        out.printf("nodes %d, move generations %d, contiguity checks %d,"
+                   + " playouts %d%n", NODES.sum(), MOVE_GENERATIONS.sum(),
+                   CONTIGUITY_CHECKS.sum(), PLAYOUTS.sum());
+    }
+
+    /** Set all the counters to 0. */
+    static void reset() {
+        NODES.reset();
+        MOVE_GENERATIONS.reset();
+        CONTIGUITY_CHECKS.reset();
+        PLAYOUTS.reset();
+    }
+}
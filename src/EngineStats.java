@@ -0,0 +1,171 @@
+package loa;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/** Statistics of the searches made by a game's AIs, recorded by the
+ *  players after each move, shown by the 'e' game command and published
+ *  over JMX under NAME.
+ *  @author Nick Holt */
+class EngineStats implements EngineStatsMBean {
+
+    /** The JMX object name under which register publishes statistics. */
+    static final String NAME = "loa:type=EngineStats";
+
+    /** Record a search that reached DEPTH plies, visiting NODES positions
+     *  in MILLIS milliseconds, made PROBES transposition table probes of
+     *  which HITS found an entry, and scored its move SCORE. */
+    synchronized void record(int depth, long nodes, long millis,
+                             long probes, long hits, int score) {
+        _lastDepth = depth;
+        _lastNodes = nodes;
+        _lastMillis = millis;
+        _lastProbes = probes;
+        _lastHits = hits;
+        _lastScore = score;
+        _moves += 1;
+        _totalDepth += depth;
+        _totalNodes += nodes;
+        _totalMillis += millis;
+        _totalProbes += probes;
+        _totalHits += hits;
+    }
+
+    /** Publish THIS over JMX as NAME, replacing any statistics published
+     *  before.  Failure is reported at debug level 1 and otherwise
+     *  ignored. */
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException excp) {
+            Reporter.debug(1, "Could not register engine statistics: %s",
+                           excp);
+        }
+    }
+
+    @Override
+    public synchronized int getLastDepth() {
+        return _lastDepth;
+    }
+
+    @Override
+    public synchronized long getLastNodes() {
+        return _lastNodes;
+    }
+
+    @Override
+    public synchronized long getLastMillis() {
+        return _lastMillis;
+    }
+
+    @Override
+    public synchronized long getLastNodesPerSecond() {
+        return perSecond(_lastNodes, _lastMillis);
+    }
+
+    @Override
+    public synchronized double getLastHashHitRate() {
+        return ratio(_lastHits, _lastProbes);
+    }
+
+    @Override
+    public synchronized double getLastBranchingFactor() {
+        if (_lastDepth == 0 || _lastNodes == 0) {
+            return 0;
+        }
+        return Math.pow(_lastNodes, 1.0 / _lastDepth);
+    }
+
+    @Override
+    public synchronized int getLastScore() {
+        return _lastScore;
+    }
+
+    @Override
+    public synchronized int getMoves() {
+        return _moves;
+    }
+
+    @Override
+    public synchronized long getTotalNodes() {
+        return _totalNodes;
+    }
+
+    @Override
+    public synchronized long getTotalMillis() {
+        return _totalMillis;
+    }
+
+    @Override
+    public synchronized long getNodesPerSecond() {
+        return perSecond(_totalNodes, _totalMillis);
+    }
+
+    @Override
+    public synchronized double getHashHitRate() {
+        return ratio(_totalHits, _totalProbes);
+    }
+
+    @Override
+    public synchronized double getAverageDepth() {
+        return ratio(_totalDepth, _moves);
+    }
+
+    @Override
+    public synchronized void reset() {
+        _lastDepth = _lastScore = _moves = 0;
+        _lastNodes = _lastMillis = _lastProbes = _lastHits = 0;
+        _totalDepth = _totalNodes = _totalMillis = 0;
+        _totalProbes = _totalHits = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Last move: depth %d, %d nodes in %d ms"
+                             + " (%d nodes/s), hash hits %.1f%%,"
+                             + " branching factor %.2f, score %d%n"
+                             + "All %d moves: %d nodes in %d ms"
+                             + " (%d nodes/s), hash hits %.1f%%,"
+                             + " mean depth %.1f%n",
+                             _lastDepth, _lastNodes, _lastMillis,
+                             getLastNodesPerSecond(),
+                             PERCENT * getLastHashHitRate(),
+                             getLastBranchingFactor(), _lastScore,
+                             _moves, _totalNodes, _totalMillis,
+                             getNodesPerSecond(),
+                             PERCENT * getHashHitRate(),
+                             getAverageDepth());
+    }
+
+    /** Return COUNT per second over MILLIS milliseconds. */
+    private static long perSecond(long count, long millis) {
+        return millis == 0 ? 0 : count * MILLIS_PER_SECOND / millis;
+    }
+
+    /** Return PART / WHOLE, or 0 if WHOLE is 0. */
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 0 : (double) part / whole;
+    }
+
+    /** Statistics of the last search. */
+    private int _lastDepth, _lastScore;
+    /** Statistics of the last search. */
+    private long _lastNodes, _lastMillis, _lastProbes, _lastHits;
+    /** The number of searches recorded. */
+    private int _moves;
+    /** Totals over all searches. */
+    private long _totalDepth, _totalNodes, _totalMillis, _totalProbes,
+        _totalHits;
+
+    /** Milliseconds in a second. */
+    private static final long MILLIS_PER_SECOND = 1000;
+    /** Converts a fraction to a percentage. */
+    private static final double PERCENT = 100;
+}
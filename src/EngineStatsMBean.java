@@ -0,0 +1,55 @@
+package loa;
+
+/** The management interface of EngineStats: statistics of the AIs'
+ *  searches, for the last move chosen and for all moves so far.  Rates
+ *  are 0 when nothing has been measured.
+ *  @author Nick Holt */
+public interface EngineStatsMBean {
+
+    /** Return the depth reached by the last search, in plies (0 for a
+     *  Monte Carlo search). */
+    int getLastDepth();
+
+    /** Return the positions (or playouts) searched for the last move. */
+    long getLastNodes();
+
+    /** Return the time taken by the last search, in milliseconds. */
+    long getLastMillis();
+
+    /** Return the speed of the last search, in nodes per second. */
+    long getLastNodesPerSecond();
+
+    /** Return the fraction of the last search's transposition table
+     *  probes that found an entry. */
+    double getLastHashHitRate();
+
+    /** Return the effective branching factor of the last search: the
+     *  depth-th root of its node count. */
+    double getLastBranchingFactor();
+
+    /** Return the score of the last search's chosen move, for the side
+     *  that made it. */
+    int getLastScore();
+
+    /** Return the number of searches recorded. */
+    int getMoves();
+
+    /** Return the nodes searched for all moves. */
+    long getTotalNodes();
+
+    /** Return the time taken by all searches, in milliseconds. */
+    long getTotalMillis();
+
+    /** Return the speed of all searches together, in nodes per second. */
+    long getNodesPerSecond();
+
+    /** Return the fraction of all transposition table probes that found
+     *  an entry. */
+    double getHashHitRate();
+
+    /** Return the mean depth reached by the searches. */
+    double getAverageDepth();
+
+    /** Forget all recorded searches. */
+    void reset();
+}
@@ -0,0 +1,52 @@
+package loa;
+
+/** The static evaluation used at the leaves of a Search.  Every term is
+ *  read from statistics that Board maintains incrementally as pieces are
+ *  added and removed, so an evaluation costs O(1) and never scans the
+ *  board.  The terms, each taken for the side to move less the same term
+ *  for its opponent, are:
+ *  <ul>
+ *  <li> centralization: the average centrality of the side's pieces;
+ *  <li> concentration: the mean squared distance of the pieces from
+ *       their center of mass (lower is better);
+ *  <li> connectedness: the Euler number from the quad counts, which is
+ *       the number of groups less the number of holes in them (lower is
+ *       better, down to 1).
+ *  </ul>
+ *  @author Nick Holt
+ */
+class Evaluator {
+
+    /** Return the score of the position on BOARD for the side to move.
+     *  Larger is better; 0 means the sides are even. */
+    static int evaluate(Board board) {
+        Side me = board.turn();
+        return value(board, me) - value(board, me.opponent());
+    }
+
+    /** Return the value of SIDE's pieces on BOARD. */
+    private static int value(Board board, Side side) {
+        int n = board.pieceCount(side);
+        if (n == 0) {
+            return 0;
+        }
+        int groups = Math.max(board.eulerNumber(side), 1);
+        return CENTRALITY_WEIGHT * board.centrality(side) / n
+            - SPREAD_WEIGHT * board.spread(side) / (n * n)
+            - GROUP_WEIGHT * (groups - 1);
+    }
+
+    /** The weight of one ring of average centrality. */
+    private static final int CENTRALITY_WEIGHT = 20;
+
+    /** The weight of one square of mean squared distance from the center
+     *  of mass. */
+    private static final int SPREAD_WEIGHT = 25;
+
+    /** The weight of each group beyond the first. */
+    private static final int GROUP_WEIGHT = 30;
+
+    /** Not instantiable. */
+    private Evaluator() {
+    }
+}
@@ -1,11 +1,15 @@
 package loa;
 
+import java.util.ArrayList;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import ucb.util.Stopwatch;
 import static loa.Side.*;
 
 /** Represents one game of Lines of Action.
@@ -42,11 +46,17 @@ class Game {
         return _board;
     }
 
+    /** Make BOARD the current board. */
+    void setBoard(MutableBoard board) {
+        _board = board;
+    }
+
     /** Return a move from the terminal.  Processes any intervening commands
      *  as well. A move is a string of the form "c0r0-c1r1",
-     *  "s", "p", "q", or "#". */
+     *  "s", "p", "q", "t", "c", "e" or "#". */
     String getMove() {
         MutableBoard board = getBoard();
+        startPondering();
         System.out.printf("%s's command > ", board.turn());
         System.out.flush();
         Pattern pat = Pattern.compile("\\s*([a-z][\\d]-[a-z]"
@@ -67,10 +77,10 @@ class Game {
             } else if (command.equals("p")) {
                 activateAI();
                 if (_board.getPlayer() == WHITE
-                        && _wp instanceof MachinePlayer) {
+                        && !(_wp instanceof HumanPlayer)) {
                     return _wp.makeMove().toString();
                 } else if (_board.getPlayer() == BLACK
-                        && _bp instanceof MachinePlayer) {
+                        && !(_bp instanceof HumanPlayer)) {
                     return _bp.makeMove().toString();
                 }
             } else if (command.equals("q")) {
@@ -83,6 +93,11 @@ class Game {
                 } else {
                     System.out.println("No time limit was set.");
                 }
+            } else if (command.equals("c")) {
+                Counters.dump(System.out);
+                Counters.reset();
+            } else if (command.equals("e")) {
+                System.out.print(_stats);
             }
             return getMove();
         }
@@ -99,16 +114,14 @@ class Game {
                 + "    Debug Level: %d"
                 , _numHuman, _seed, _time, Reporter.getMessageLevel());
         inp = new Scanner(System.in);
+        _stats.register();
         _wp = new HumanPlayer(WHITE, this);
         _bp = new HumanPlayer(BLACK, this);
-        Stopwatch stopwatch = new Stopwatch();
+        _board = new MutableBoard(_board.getConfigCopy(), WHITE);
         while (hasTime(WHITE) || hasTime(BLACK)) {
-            _board = new MutableBoard(_board.getConfigCopy(), WHITE);
-            stopwatch.start();
+            long start = System.nanoTime();
             _board.makeMove(_wp.makeMove());
-            addTime(WHITE, (int) stopwatch.getElapsed() / THOUSAND);
-            stopwatch.stop();
-            stopwatch.reset();
+            addTime(WHITE, (System.nanoTime() - start) / NANOS_PER_MILLI);
             Reporter.debug(6, "%s", _board);
             if (_board.piecesContiguous(WHITE)) {
                 inp.close();
@@ -116,12 +129,9 @@ class Game {
                 System.exit(1);
                 gameComplete = true;
             }
-            _board = new MutableBoard(_board.getConfigCopy(), BLACK);
-            stopwatch.start();
+            start = System.nanoTime();
             _board.makeMove(_bp.makeMove());
-            addTime(BLACK, (int) stopwatch.getElapsed() / THOUSAND);
-            stopwatch.stop();
-            stopwatch.reset();
+            addTime(BLACK, (System.nanoTime() - start) / NANOS_PER_MILLI);
             Reporter.debug(6, "%s", _board);
             if (_board.piecesContiguous(BLACK)) {
                 inp.close();
@@ -151,16 +161,14 @@ class Game {
                 + "    Debug Level: %d"
                 , _numHuman, _seed, _time, Reporter.getMessageLevel());
         inp = new Scanner(System.in);
+        _stats.register();
         _wp = new HumanPlayer(WHITE, this);
         _bp = new HumanPlayer(BLACK, this);
-        Stopwatch stopwatch = new Stopwatch();
+        _board = new MutableBoard(_board.getConfigCopy(), BLACK);
         while (hasTime(WHITE) || hasTime(BLACK)) {
-            _board = new MutableBoard(_board.getConfigCopy(), BLACK);
-            stopwatch.start();
+            long start = System.nanoTime();
             _board.makeMove(_bp.makeMove());
-            addTime(BLACK, (int) stopwatch.getElapsed() / THOUSAND);
-            stopwatch.stop();
-            stopwatch.reset();
+            addTime(BLACK, (System.nanoTime() - start) / NANOS_PER_MILLI);
             Reporter.debug(6, "%s", _board);
             if (_board.piecesContiguous(BLACK)) {
                 inp.close();
@@ -168,12 +176,9 @@ class Game {
                 System.exit(1);
                 gameComplete = true;
             }
-            _board = new MutableBoard(_board.getConfigCopy(), WHITE);
-            stopwatch.start();
+            start = System.nanoTime();
             _board.makeMove(_wp.makeMove());
-            addTime(WHITE, (int) stopwatch.getElapsed() / THOUSAND);
-            stopwatch.stop();
-            stopwatch.reset();
+            addTime(WHITE, (System.nanoTime() - start) / NANOS_PER_MILLI);
             Reporter.debug(6, "%s", _board);
             if (_board.piecesContiguous(WHITE)) {
                 inp.close();
@@ -196,27 +201,210 @@ class Game {
         }
     }
 
-    /** Return time remaining for SIDE (in seconds).
+    /** Play this game between two AIs, white moving first from the
+     *  standard position, without reading input, printing or exiting.
+     *  The first getRandomOpening() plies are legal moves chosen at random
+     *  from this game's random source, so that games with different seeds
+     *  differ even between AIs that use no randomness; the AIs play the
+     *  rest.  Return the winner, or null if neither side has won after
+     *  MAX_PLIES plies.  A side with no legal moves, or that runs out of
+     *  time, loses.  The time taken by each AI move is available afterwards
+     *  from getMoveTimes().  Shuts down this game's AI threads on
+     *  return. */
+    Side playHeadless() {
+        setQuiet(true);
+        _numHuman = 0;
+        activateAI();
+        _board = new MutableBoard(Board.INITIAL_PIECES, WHITE);
+        int[] moves = new int[Board.MAX_MOVES];
+        try {
+            while (_board.movesMade() < MAX_PLIES) {
+                Side side = _board.turn();
+                int count = _board.generateMoves(moves, 0);
+                if (count == 0) {
+                    return side.opponent();
+                }
+                Move move;
+                if (_board.movesMade() < _randomOpening) {
+                    move = Move.create(moves[_randomSource.nextInt(count)]);
+                } else {
+                    Player player = side == WHITE ? _wp : _bp;
+                    long start = System.nanoTime();
+                    move = player.makeMove();
+                    long time =
+                        (System.nanoTime() - start) / NANOS_PER_MILLI;
+                    addTime(side, time);
+                    _moveTimes.add(time);
+                }
+                _board.makeMove(move);
+                if (_board.piecesContiguous(side)) {
+                    return side;
+                } else if (!hasTime(side)) {
+                    return side.opponent();
+                }
+            }
+            return null;
+        } finally {
+            shutdown();
+        }
+    }
+
+    /** Make playHeadless open with PLIES random moves. */
+    void setRandomOpening(int plies) {
+        _randomOpening = plies;
+    }
+
+    /** Return the number of random moves with which playHeadless
+     *  opens. */
+    int getRandomOpening() {
+        return _randomOpening;
+    }
+
+    /** Return the time taken by each AI move made by playHeadless, in
+     *  milliseconds. */
+    ArrayList<Long> getMoveTimes() {
+        return _moveTimes;
+    }
+
+    /** Return true iff this game's players should print nothing. */
+    boolean isQuiet() {
+        return _quiet;
+    }
+
+    /** Stop this game's players printing their moves iff QUIET. */
+    void setQuiet(boolean quiet) {
+        _quiet = quiet;
+    }
+
+    /** Stop this game's AI threads, if any. */
+    void shutdown() {
+        if (_searchPool != null) {
+            _searchPool.shutdown();
+            _searchPool = null;
+        }
+        if (_forkJoinPool != null) {
+            _forkJoinPool.shutdownNow();
+            _forkJoinPool = null;
+        }
+        if (_proofExecutor != null) {
+            _proofExecutor.shutdownNow();
+            _proofExecutor = null;
+        }
+    }
+
+    /** Return time remaining for SIDE (in whole seconds).
      *  Assumes a time limit has been set.*/
     int timeRemaining(Side side) {
-        if (side == WHITE) {
-            Reporter.debug(2, "white has %d seconds left.", _time - _wTime);
-            return _time - _wTime;
-        } else {
-            assert side == BLACK;
-            Reporter.debug(2, "black has %d seconds left.", _time - _bTime);
-            return _time - _bTime;
-        }
+        int result = (int) (timeRemainingMillis(side) / THOUSAND);
+        Reporter.debug(2, "%s has %d seconds left.", side, result);
+        return result;
+    }
+
+    /** Return time remaining for SIDE (in milliseconds).
+     *  Assumes a time limit has been set.*/
+    long timeRemainingMillis(Side side) {
+        return _time * (long) THOUSAND - getTime(side);
     }
 
     /** Returns true iff SIDE has time remaining. */
     private boolean hasTime(Side side) {
         if (hasTimeLimit) {
-            return timeRemaining(side) > 0;
+            return timeRemainingMillis(side) > 0;
         }
         return true;
     }
 
+    /** Start an AI pondering on the human's time, if pondering is on, the
+     *  one AI of this game is an alpha-beta player and it is not pondering
+     *  already. */
+    private void startPondering() {
+        if (_ponderEnabled && _ponder == null && aiActive && _numHuman == 1
+            && !_monteCarlo) {
+            _ponder = new Ponder(_board, getTranspositionTable(),
+                                 _tablebase);
+            _ponder.start();
+        }
+    }
+
+    /** Return the ponder started since the last call, or null if none,
+     *  leaving none.  The caller should stop it. */
+    Ponder takePonder() {
+        Ponder result = _ponder;
+        _ponder = null;
+        return result;
+    }
+
+    /** Let the AIs play moves from BOOK, or from no book if it is
+     *  null. */
+    public void setBook(OpeningBook book) {
+        _book = book;
+    }
+
+    /** Return the AIs' opening book, or null if they have none. */
+    OpeningBook getBook() {
+        return _book;
+    }
+
+    /** Let the alpha-beta AIs use TABLEBASE, or no tablebase if it is
+     *  null. */
+    public void setTablebase(Tablebase tablebase) {
+        _tablebase = tablebase;
+    }
+
+    /** Return the AIs' tablebase, or null if they have none. */
+    Tablebase getTablebase() {
+        return _tablebase;
+    }
+
+    /** Let the alpha-beta AIs run a ProofSearch of at most BUDGET
+     *  positions beside each move's search, or none if BUDGET is 0. */
+    public void setProofBudget(long budget) {
+        _proofBudget = budget;
+        _proofSearch = null;
+    }
+
+    /** Return the AIs' proof search budget, or 0 if they run none. */
+    long getProofBudget() {
+        return _proofBudget;
+    }
+
+    /** Return the AIs' proof searcher, which is created on first use and
+     *  kept for the rest of the game. */
+    ProofSearch getProofSearch() {
+        if (_proofSearch == null) {
+            _proofSearch = new ProofSearch(_proofBudget);
+        }
+        return _proofSearch;
+    }
+
+    /** Return the (daemon) thread on which the AIs run their proof
+     *  searches.  It is created on first use and kept for the rest of the
+     *  game. */
+    ExecutorService getProofExecutor() {
+        if (_proofExecutor == null) {
+            _proofExecutor =
+                Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable task) {
+                        Thread thread = new Thread(task, "loa-proof");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+        return _proofExecutor;
+    }
+
+    /** Let the AI search on the human's time iff PONDER. */
+    public void setPonder(boolean ponder) {
+        _ponderEnabled = ponder;
+    }
+
+    /** Return the statistics of this game's AI searches. */
+    EngineStats getEngineStats() {
+        return _stats;
+    }
+
     /** Return the random number generator for this game. */
     Random getRandomSource() {
         return _randomSource;
@@ -227,8 +415,8 @@ class Game {
         return _randomSource.nextDouble();
     }
 
-    /** Add TIME to SIDE's total. */
-    public void addTime(Side side, int time) {
+    /** Add TIME milliseconds to SIDE's total. */
+    public void addTime(Side side, long time) {
         assert side == BLACK || side == WHITE;
         if (side == BLACK) {
             _bTime += time;
@@ -237,8 +425,8 @@ class Game {
         }
     }
 
-    /** Return SIDE's time taken thus far. */
-    public int getTime(Side side) {
+    /** Return SIDE's time taken thus far, in milliseconds. */
+    public long getTime(Side side) {
         assert side == BLACK || side == WHITE;
         if (side == BLACK) {
             return _bTime;
@@ -251,18 +439,33 @@ class Game {
     public void activateAI() {
         aiActive = true;
         if (_numHuman == 0) {
-            _wp = new MachinePlayer(WHITE, this);
-            _bp = new MachinePlayer(BLACK, this);
+            _wp = newAI(WHITE);
+            _bp = newAI(BLACK);
         } else if (_numHuman == 1) {
             if (_side0 == WHITE) {
-                _bp = new MachinePlayer(BLACK, this);
+                _bp = newAI(BLACK);
             } else {
                 assert _side0 == BLACK;
-                _wp = new MachinePlayer(WHITE, this);
+                _wp = newAI(WHITE);
             }
         }
     }
 
+    /** Return a new AI player for SIDE, of the kind chosen by
+     *  setMonteCarlo. */
+    private Player newAI(Side side) {
+        if (_monteCarlo) {
+            return new MonteCarloPlayer(side, this);
+        }
+        return new MachinePlayer(side, this);
+    }
+
+    /** Use Monte Carlo tree search for the AIs iff MONTECARLO; otherwise
+     *  they use alpha-beta search. */
+    public void setMonteCarlo(boolean monteCarlo) {
+        _monteCarlo = monteCarlo;
+    }
+
     /** Return true iff AI are active. */
     public boolean aiActive() {
         return aiActive;
@@ -278,6 +481,44 @@ class Game {
         _wp = player;
     }
 
+    /** Use a transposition table of MEGABYTES megabytes for the AIs. */
+    public void setHashSize(int megabytes) {
+        _hashSize = megabytes;
+        _table = null;
+    }
+
+    /** Return the transposition table shared by this game's AIs. */
+    TranspositionTable getTranspositionTable() {
+        if (_table == null) {
+            _table = new TranspositionTable(_hashSize);
+        }
+        return _table;
+    }
+
+    /** Search with THREADS threads (THREADS >= 1) on the AIs' turns. */
+    public void setThreads(int threads) {
+        _threads = threads;
+    }
+
+    /** Return the pool of threads that search for this game's AIs.  It is
+     *  created on first use and kept for the rest of the game. */
+    SearchPool getSearchPool() {
+        if (_searchPool == null) {
+            _searchPool = new SearchPool(_threads);
+        }
+        return _searchPool;
+    }
+
+    /** Return the fork-join pool on which Monte Carlo AIs run their
+     *  playouts, with one worker per search thread.  It is created on first
+     *  use and kept for the rest of the game. */
+    ForkJoinPool getForkJoinPool() {
+        if (_forkJoinPool == null) {
+            _forkJoinPool = new ForkJoinPool(_threads);
+        }
+        return _forkJoinPool;
+    }
+
     /** Returns true if this game has a time limit. */
     public boolean hasTimeLimit() {
         return hasTimeLimit;
@@ -311,11 +552,11 @@ class Game {
     /** The maximum total time for all moves. */
     private int _time;
 
-    /** The time black has taken thus far. */
-    private int _bTime = 0;
+    /** The time black has taken thus far, in milliseconds. */
+    private long _bTime = 0;
 
-    /** The time white has taken thus far. */
-    private int _wTime = 0;
+    /** The time white has taken thus far, in milliseconds. */
+    private long _wTime = 0;
 
     /** True iff AI are activated. */
     private boolean aiActive = false;
@@ -326,9 +567,71 @@ class Game {
     /** True if the game is over. */
     private boolean gameComplete = false;
 
+    /** The size of the AIs' transposition table, in megabytes. */
+    private int _hashSize = DEFAULT_HASH_SIZE;
+
+    /** The AIs' transposition table, or null if not yet created. */
+    private TranspositionTable _table;
+
+    /** The number of threads searching for the AIs. */
+    private int _threads = 1;
+
+    /** The AIs' search threads, or null if not yet created. */
+    private SearchPool _searchPool;
+
+    /** The AIs' playout threads, or null if not yet created. */
+    private ForkJoinPool _forkJoinPool;
+
+    /** The AIs' proof searcher, or null if not yet created. */
+    private ProofSearch _proofSearch;
+
+    /** The AIs' proof search thread, or null if not yet created. */
+    private ExecutorService _proofExecutor;
+
+    /** The most positions in the AIs' proof searches, or 0 for none. */
+    private long _proofBudget = 0;
+
+    /** True iff this game's players print nothing. */
+    private boolean _quiet = false;
+
+    /** The AIs' opening book, or null. */
+    private OpeningBook _book;
+
+    /** The AIs' endgame tablebase, or null. */
+    private Tablebase _tablebase;
+
+    /** True iff the AI may ponder. */
+    private boolean _ponderEnabled = false;
+
+    /** The AI's search on the human's time, if it is pondering. */
+    private Ponder _ponder;
+
+    /** Statistics of the AIs' searches. */
+    private final EngineStats _stats = new EngineStats();
+
+    /** The time taken by each AI move made by playHeadless, in
+     *  milliseconds. */
+    private final ArrayList<Long> _moveTimes = new ArrayList<Long>();
+
+    /** The number of random moves with which playHeadless opens. */
+    private int _randomOpening = 0;
+
+    /** The most plies playHeadless plays before calling a game
+     *  unfinished. */
+    static final int MAX_PLIES = 1000;
+
+    /** True iff the AIs use Monte Carlo tree search. */
+    private boolean _monteCarlo = false;
+
+    /** The default size of the transposition table, in megabytes. */
+    static final int DEFAULT_HASH_SIZE = 16;
+
     /** Maximum value represtable by an int. */
     private static final int MAX_INT = 2147483647;
 
     /** A number. */
     private static final int THOUSAND = 1000;
+
+    /** The number of nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
 }
@@ -0,0 +1,95 @@
+package loa;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/** A file of GameRecords, one after another.  Records are only ever
+ *  appended, so games may be added to an archive from any number of
+ *  runs, and an archive is read back one record at a time, so it need not
+ *  fit in memory.
+ *  @author Nick Holt */
+class GameArchive {
+
+    /** Appends records to an archive.  Each record is written with a
+     *  single append to the file, so several processes may append to one
+     *  archive at once without splitting each other's records (on file
+     *  systems whose appends are atomic, as local ones are).  Its methods
+     *  may be called from several threads. */
+    static class Writer implements Closeable {
+
+        /** A writer that appends to the archive named FILENAME, creating
+         *  it if need be. */
+        Writer(String fileName) throws IOException {
+            _channel = FileChannel.open(Paths.get(fileName),
+                                        StandardOpenOption.CREATE,
+                                        StandardOpenOption.WRITE,
+                                        StandardOpenOption.APPEND);
+        }
+
+        /** Append RECORD. */
+        synchronized void write(GameRecord record) throws IOException {
+            _bytes.reset();
+            record.write(_record);
+            ByteBuffer buffer = ByteBuffer.wrap(_bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                _channel.write(buffer);
+            }
+            _count += 1;
+        }
+
+        /** Return the number of records appended. */
+        synchronized long count() {
+            return _count;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            _channel.close();
+        }
+
+        /** The archive. */
+        private final FileChannel _channel;
+        /** The record being written. */
+        private final ByteArrayOutputStream _bytes =
+            new ByteArrayOutputStream();
+        /** Writes a record to _bytes. */
+        private final DataOutputStream _record = new DataOutputStream(_bytes);
+        /** The number of records appended. */
+        private long _count;
+    }
+
+    /** Reads the records of an archive in order. */
+    static class Reader implements Closeable {
+
+        /** A reader of the archive named FILENAME. */
+        Reader(String fileName) throws IOException {
+            _in = new DataInputStream(new BufferedInputStream(
+                      new FileInputStream(fileName), BUFFER_SIZE));
+        }
+
+        /** Return the next record, or null if there are no more. */
+        GameRecord next() throws IOException {
+            return GameRecord.read(_in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            _in.close();
+        }
+
+        /** The archive. */
+        private final DataInputStream _in;
+    }
+
+    /** The size of the buffers of readers, in bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+}
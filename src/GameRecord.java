@@ -0,0 +1,205 @@
+package loa;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+
+import static loa.Side.*;
+
+/** The record of one game: its starting position, the moves made from
+ *  it, its random seed, time limit and the time each side took, and its
+ *  winner.  Records are written to a GameArchive in a compact binary form
+ *  of HEADER_SIZE bytes followed by two bytes per move.  The header holds,
+ *  in big-endian order,
+ *      MAGIC (2 bytes) and VERSION (1 byte),
+ *      the squares of black's and of white's starting pieces, as sets of
+ *      squares (8 bytes each),
+ *      the side to move first and the winner (1 byte each: 0 for black,
+ *      1 for white and, for the winner, NO_WINNER for none),
+ *      the seed (8 bytes),
+ *      the time limit in seconds, 0 for none (4 bytes),
+ *      the time taken by black and by white in milliseconds (4 bytes
+ *      each), and
+ *      the number of moves, at most MAX_MOVES (4 bytes).
+ *  Each move is its code (see Move.code).
+ *  @author Nick Holt */
+class GameRecord {
+
+    /** The first bytes of every record. */
+    static final int MAGIC = 0x4C47;
+    /** The version of the format. */
+    static final int VERSION = 1;
+    /** The size of the header of a record, in bytes. */
+    static final int HEADER_SIZE = 45;
+    /** The code of the winner of a game that neither side won. */
+    static final int NO_WINNER = 2;
+    /** The most moves in a record. */
+    static final int MAX_MOVES = 1 << 16;
+
+    /** A record of a game that started from the position whose pieces are
+     *  BLACK and WHITE with FIRST to move, made MOVES (codes) and was won
+     *  by WINNER (null if neither side won).  SEED is the game's seed,
+     *  TIME its time limit in seconds (0 for none), and BLACKMILLIS and
+     *  WHITEMILLIS the times the sides took. */
+    GameRecord(long black, long white, Side first, int[] moves, Side winner,
+               long seed, int time, long blackMillis, long whiteMillis) {
+        _black = black;
+        _white = white;
+        _first = first;
+        _moves = moves;
+        _winner = winner;
+        _seed = seed;
+        _time = time;
+        _blackMillis = blackMillis;
+        _whiteMillis = whiteMillis;
+    }
+
+    /** Return a record of the game played on BOARD, whose move history
+     *  holds all of its moves, and which WINNER won (null if neither).
+     *  SEED, TIME, BLACKMILLIS and WHITEMILLIS are as for the
+     *  constructor. */
+    static GameRecord of(Board board, Side winner, long seed, int time,
+                         long blackMillis, long whiteMillis) {
+        MutableBoard start = new MutableBoard(board);
+        int[] moves = new int[board.movesMade()];
+        for (int k = 0; k < moves.length; k += 1) {
+            moves[k] = board.getMove(k).code();
+            start.retract();
+        }
+        return new GameRecord(start.pieces(BLACK), start.pieces(WHITE),
+                              start.turn(), moves, winner, seed, time,
+                              blackMillis, whiteMillis);
+    }
+
+    /** Write this record to OUT. */
+    void write(DataOutput out) throws IOException {
+        if (_moves.length > MAX_MOVES) {
+            throw new IOException("game too long to record");
+        }
+        out.writeShort(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(_black);
+        out.writeLong(_white);
+        out.writeByte(_first.ordinal());
+        out.writeByte(_winner == null ? NO_WINNER : _winner.ordinal());
+        out.writeLong(_seed);
+        out.writeInt(_time);
+        out.writeInt((int) Math.min(_blackMillis, Integer.MAX_VALUE));
+        out.writeInt((int) Math.min(_whiteMillis, Integer.MAX_VALUE));
+        out.writeInt(_moves.length);
+        for (int move : _moves) {
+            out.writeShort(move);
+        }
+    }
+
+    /** Return the next record read from IN, or null if IN is at its
+     *  end. */
+    static GameRecord read(DataInput in) throws IOException {
+        int magic;
+        try {
+            magic = in.readUnsignedShort();
+        } catch (EOFException excp) {
+            return null;
+        }
+        try {
+            return readRest(magic, in);
+        } catch (EOFException excp) {
+            throw new IOException("truncated game record", excp);
+        }
+    }
+
+    /** Return the record read from IN whose first two bytes, already
+     *  read, are MAGIC. */
+    private static GameRecord readRest(int magic, DataInput in)
+        throws IOException {
+        int version = in.readUnsignedByte();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException("not a game record");
+        }
+        long black = in.readLong(), white = in.readLong();
+        int first = in.readUnsignedByte(), winner = in.readUnsignedByte();
+        long seed = in.readLong();
+        int time = in.readInt();
+        long blackMillis = in.readInt(), whiteMillis = in.readInt();
+        int count = in.readInt();
+        if ((black & white) != 0 || first > WHITE.ordinal()
+            || winner > NO_WINNER || count < 0 || count > MAX_MOVES) {
+            throw new IOException("corrupt game record");
+        }
+        int[] moves = new int[count];
+        for (int k = 0; k < count; k += 1) {
+            moves[k] = in.readUnsignedShort();
+        }
+        return new GameRecord(black, white, SIDES[first], moves,
+                              winner == NO_WINNER ? null : SIDES[winner],
+                              seed, time, blackMillis, whiteMillis);
+    }
+
+    /** Return the starting position of this game. */
+    MutableBoard start() {
+        return new MutableBoard(_black, _white, _first);
+    }
+
+    /** Return the position at the end of this game, with all its moves
+     *  in its history, or null if one of its moves is not legal. */
+    MutableBoard replay() {
+        MutableBoard board = start();
+        for (int code : _moves) {
+            Move move = code < Move.NUM_CODES ? Move.create(code) : null;
+            if (move == null || !board.isLegal(move)) {
+                return null;
+            }
+            board.makeMove(move);
+        }
+        return board;
+    }
+
+    /** Return the number of moves made. */
+    int size() {
+        return _moves.length;
+    }
+
+    /** Return the code of move #K, 0 <= K < size(). */
+    int move(int k) {
+        return _moves[k];
+    }
+
+    /** Return the winner, or null if neither side won. */
+    Side winner() {
+        return _winner;
+    }
+
+    /** Return the game's seed. */
+    long seed() {
+        return _seed;
+    }
+
+    /** Return the game's time limit in seconds, or 0 if it had none. */
+    int time() {
+        return _time;
+    }
+
+    /** Return the time taken by SIDE, in milliseconds. */
+    long millis(Side side) {
+        return side == BLACK ? _blackMillis : _whiteMillis;
+    }
+
+    /** The squares of black's and white's starting pieces. */
+    private final long _black, _white;
+    /** The side that moved first. */
+    private final Side _first;
+    /** The codes of the moves. */
+    private final int[] _moves;
+    /** The winner, or null. */
+    private final Side _winner;
+    /** The game's seed. */
+    private final long _seed;
+    /** The time limit, in seconds, or 0. */
+    private final int _time;
+    /** The times taken by black and white, in milliseconds. */
+    private final long _blackMillis, _whiteMillis;
+
+    /** The sides, indexed by ordinal. */
+    private static final Side[] SIDES = {BLACK, WHITE};
+}
@@ -1,8 +1,8 @@
 package loa;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static loa.Side.*;
 
@@ -20,52 +20,73 @@ class MachinePlayer extends Player {
         Game game = getGame();
         MutableBoard board = game.getBoard();
         assert board.turn() == side();
-        double random = game.getRandom();
+        Ponder ponder = game.takePonder();
+        if (ponder != null) {
+            ponder.stop();
+        }
         ArrayList<Move> legalMoves = board.legalMoves();
-        int index = (int) (random * (legalMoves.size() - 1));
-        Reporter.debug(5, "legalMoves.size() = %d, index = %d"
-                , legalMoves.size(), index);
         if (legalMoves.size() == 0) {
             System.out.printf("Player %s has no legal moves. %s wins.\n"
                     , side(), side().opponent());
             System.exit(1);
         }
-        Move result = legalMoves.get(index);
-        boolean win = false;
-        Collections.shuffle(legalMoves);
-        for (Move move : legalMoves) {
-            board.makeMove(move);
-            win = board.piecesContiguous(side());
-            if (win) {
-                board.retract();
-                result = move;
-                win = true;
-            } else {
-                board.retract();
+        Move result = legalMoves.size() == 1 ? legalMoves.get(0) : null;
+        int win = board.winningMove();
+        if (win != 0) {
+            result = Move.create(win);
+        }
+        if (result == null) {
+            result = bookMove(game.getBook(), board, legalMoves);
+        }
+        if (result == null) {
+            TranspositionTable table = game.getTranspositionTable();
+            table.newSearch();
+            Search search = new Search(new MutableBoard(board), table,
+                                       _ordering);
+            search.setTablebase(game.getTablebase());
+            SearchPool pool = game.getSearchPool();
+            int maxDepth = SEARCH_DEPTH;
+            TimeManager timer = TimeManager.unlimited();
+            if (game.hasTimeLimit()) {
+                maxDepth = Search.MAX_PLY - 1;
+                timer = TimeManager.forMove(game.timeRemainingMillis(side()));
             }
-        }
-        if (!win) {
-            for (Move move: legalMoves) {
-                Reporter.debug(4, "simulation ran with move %s", move);
-                int turns;
-                if (game.hasTimeLimit()) {
-                    int timeLeft = game.timeRemaining(side().opponent());
-                    turns = (int) (timeLeft * MOVE_TO_TIME_FACTOR);
-                } else {
-                    turns = TEN;
+            if (ponderHit(ponder, board, maxDepth, timer)) {
+                Search pondered = ponder.search();
+                result = Move.create(ponder.bestMove());
+                game.getEngineStats().record(pondered.depth(),
+                    pondered.nodes(), ponder.millis(), pondered.hashProbes(),
+                    pondered.hashHits(), pondered.score());
+                Reporter.debug(2, "Ponder hit after %d ms, depth %d.",
+                               ponder.millis(), pondered.depth());
+            } else {
+                long start = System.nanoTime();
+                ProofSearch prover = null;
+                Future<Integer> proof = null;
+                if (game.getProofBudget() > 0) {
+                    prover = game.getProofSearch();
+                    proof = game.getProofExecutor().submit(
+                        prover.task(new MutableBoard(board), search));
                 }
-                GameSimulation simulation
-                    = new GameSimulation(board.getConfigCopy(), turns);
-                win = runSimulation(simulation, move);
-                Reporter.debug(4, "Simulation win with move %s: %s", move, win);
-                if (win) {
-                    Reporter.debug(5, "FOUND A WINNING MOVE.");
-                    result = move;
-                    break;
+                result = Move.create(pool.bestMove(search, board, table,
+                                                   maxDepth, timer));
+                int proved = proofResult(prover, proof);
+                if (proved != 0) {
+                    result = Move.create(proved);
+                    Reporter.debug(2, "Proved a win with %s in %d nodes.",
+                                   result, prover.nodes());
                 }
+                game.getEngineStats().record(search.depth(), pool.nodes(),
+                    (System.nanoTime() - start) / NANOS_PER_MILLI,
+                    search.hashProbes(), search.hashHits(), search.score());
+                Reporter.debug(2, "Searched %d nodes on %d threads to depth"
+                        + " %d, score %d.", pool.nodes(), pool.threads()
+                        , search.depth(), search.score());
             }
         }
-        if (side() == WHITE) {
+        if (game.isQuiet()) {
+            return result;
+        } else if (side() == WHITE) {
             System.out.println("W::" + result);
         } else {
             assert side() == BLACK;
@@ -76,115 +97,61 @@ class MachinePlayer extends Player {
         return result;
     }
 
-    /** Run a game SIMULATION of N turns and return true iff
-     *  the game is winnable by THIS within N turns. The first
-     *  move is FIRSTMOVE. Returns false if the game cannot be won
-     *  or the opponent wins first.*/
-    private boolean runSimulation(GameSimulation simulation, Move firstMove) {
-        if (!simulation.hasTurns()) {
-            return false;
-        }
-        Side me = side(), opponent = side().opponent();
-        simulation.makeMove(me, firstMove);
-        if (simulation.simulationWon(me)) {
-            return true;
-        }
-        simulation.makeRandomMove(opponent);
-        if (simulation.simulationWon(opponent)) {
-            return false;
-        }
-        simulation.decreaseTurns();
-        ArrayList<Move> legalMoves = simulation.legalMoves(me);
-        for (Move move : legalMoves) {
-            GameSimulation simCopy = new GameSimulation(
-                    simulation.getConfig(), simulation.getTurns());
-            boolean win = runSimulation(simCopy, move);
-            if (win) {
-                return true;
-            }
-        }
-        return false;
+    /** Return a move from BOOK for the position on BOARD, whose legal
+     *  moves are LEGALMOVES, or null if there is none.  BOOK may be
+     *  null. */
+    private Move bookMove(OpeningBook book, Board board,
+                          ArrayList<Move> legalMoves) {
+        if (book == null) {
+            return null;
+        }
+        int move = book.probe(board.hashKey(), getGame().getRandomSource());
+        if (move <= 0 || move >= Move.NUM_CODES
+            || !legalMoves.contains(Move.create(move))) {
+            return null;
+        }
+        Reporter.debug(2, "Book move %s.", Move.create(move));
+        return Move.create(move);
     }
 
-    /** A class representing a game simulation. This class is
-     *  controlled externally by a MachinePlayer.
-     *  @author Nick Holt */
-    private class GameSimulation {
-        /** Start a new simulation, using
-         *  the initial CONFIG, with only
-         *  TURNS number of turns allowed by each side. */
-        GameSimulation(Piece[][] config, int turns) {
-            _turns = turns;
-            _config = config;
-        }
-
-        /** Perform a MOVE by SIDE. */
-        void makeMove(Side side, Move move) {
-            MutableBoard simBoard = new MutableBoard(_config, side);
-            simBoard.makeMove(move);
-            _config = simBoard.getConfigCopy();
-        }
-
-        /** Perform a random move by SIDE.
-         *  Does nothing if no legal move can be made. */
-        void makeRandomMove(Side side) {
-            Game game = getGame();
-            Random randomsource = game.getRandomSource();
-            ArrayList<Move> legalMoves = legalMoves(side);
-            if (legalMoves.size() != 0) {
-                Move move = legalMoves.get(
-                        (int) (randomsource.nextDouble()
-                        * legalMoves.size() - 1));
-                makeMove(side, move);
-            }
-        }
-
-        /** Decrease the number of turns allowed by one. */
-        void decreaseTurns() {
-            _turns -= 1;
-        }
-
-        /** Returns true if this simulation has turns left. */
-        boolean hasTurns() {
-            return _turns > 0;
-        }
-
-        /** Returns a list of SIDE's legal moves. */
-        ArrayList<Move> legalMoves(Side side) {
-            Board simBoard = new Board(_config, side);
-            Reporter.debug(4, "simulation's legalMoves found: %s"
-                    , simBoard.legalMoves());
-            return simBoard.legalMoves();
-        }
-
-        /** Returns true iff this game simulation has been won
-         *  by SIDE. */
-        boolean simulationWon(Side side) {
-            Board simboard = new Board(_config, side);
-            Reporter.debug(5, "simulationBoard: %s", simboard);
-            return simboard.piecesContiguous(side);
-        }
-
-        /** Returns this simulation's number of turns. */
-        int getTurns() {
-            return _turns;
+    /** Stop PROVER, whose task is PROOF, and return the winning move it
+     *  proved, or 0 if none.  PROVER and PROOF may be null. */
+    private int proofResult(ProofSearch prover, Future<Integer> proof) {
+        if (prover == null) {
+            return 0;
+        }
+        prover.stop();
+        try {
+            return proof.get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException excp) {
+            return 0;
         }
+    }
 
-        /** @return this simulations configuration. */
-        Piece[][] getConfig() {
-            return _config;
+    /** Return true iff PONDER, which has been stopped, searched the
+     *  position on BOARD as deeply as a search to MAXDEPTH, or for as long
+     *  as TIMER's soft allowance, so that its move may be played at once.
+     *  PONDER may be null. */
+    private boolean ponderHit(Ponder ponder, Board board, int maxDepth,
+                              TimeManager timer) {
+        if (ponder == null || ponder.key() != board.hashKey()
+            || ponder.bestMove() == 0) {
+            return false;
         }
-
-        /** The amount of turns left in this game. */
-        private int _turns;
-
-        /** The simulation's game board. */
-        private Piece[][] _config;
+        return ponder.search().depth() >= maxDepth
+            || ponder.millis() >= timer.softMillis();
     }
 
-    /** This games move to time factor. */
-    private static final double MOVE_TO_TIME_FACTOR = 100;
+    /** The move ordering of my searches, kept from move to move. */
+    private final MoveOrdering _ordering = new MoveOrdering();
+
+    /** The depth, in plies, to which moves are searched when there is no
+     *  time limit. */
+    private static final int SEARCH_DEPTH = 5;
 
-    /** The number 10. */
-    private static final int TEN = 10;
+    /** Nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
 }
@@ -1,5 +1,7 @@
 package loa;
 
+import java.io.IOException;
+
 import ucb.util.CommandArgs;
 
 /** Main class of the Lines of Action program.
@@ -10,11 +12,22 @@ public class Main {
     /** The main Lines of Action.  ARGS are as described in the
      *  project 3 handout:
      *      [ --white ] [ --ai=N ] [ --seed=S ] [ --time=LIM ] \
-     *      [ --debug=D ] [ --display ]
+     *      [ --debug=D ] [ --display ] [ --hash=MB ] [ --threads=N ] \
+     *      [ --mcts ] [ --selfplay=N ] [ --out=FILE ] \
+     *      [ --perft=D ] [ --position=P ] [ --divide ] [ --ponder ] \
+     *      [ --book=FILE ] [ --buildbook=FILE ] [ --bookplies=N ] \
+     *      [ --bookdepth=N ] [ --tb=DIR ] [ --buildtb=DIR ] \
+     *      [ --tbpieces=N ] [ --proof=N ] [ --archive=FILE ] \
+     *      [ --replay=FILE ] [ --game=K ]
      */
     public static void main(String... args) {
         String options = "--white --ai= --seed= --time="
-                + " --debug= --display";
+                + " --debug= --display --hash= --threads= --mcts"
+                + " --selfplay= --out= --perft= --position= --divide"
+                + " --ponder"
+                + " --book= --buildbook= --bookplies= --bookdepth="
+                + " --tb= --buildtb= --tbpieces= --proof="
+                + " --archive= --replay= --game=";
         CommandArgs cArgs =
             new CommandArgs(options, args);
 
@@ -26,6 +39,8 @@ public class Main {
         long seed = -1;
         int time = -1;
         int debug = 0;
+        int hash = Game.DEFAULT_HASH_SIZE;
+        int threads = 1;
         Side side;
 
         if (cArgs.containsKey("--ai")) {
@@ -52,6 +67,18 @@ public class Main {
                 usage();
             }
         }
+        if (cArgs.containsKey("--hash")) {
+            hash = cArgs.getInt("--hash");
+            if (hash <= 0) {
+                usage();
+            }
+        }
+        if (cArgs.containsKey("--threads")) {
+            threads = cArgs.getInt("--threads");
+            if (threads <= 0) {
+                usage();
+            }
+        }
         if (cArgs.containsKey("--white")) {
             side = Side.WHITE;
         } else {
@@ -65,7 +92,139 @@ public class Main {
         }
 
         Reporter.setMessageLevel(debug);
+        if (cArgs.containsKey("--replay")) {
+            String in = cArgs.getFirst("--replay");
+            try {
+                if (cArgs.containsKey("--game")) {
+                    long game = cArgs.getLong("--game");
+                    if (game < 0) {
+                        usage();
+                    }
+                    Replay.show(in, game);
+                } else {
+                    Replay.run(in);
+                }
+            } catch (IOException excp) {
+                System.err.printf("Error: could not read %s: %s%n", in,
+                                  excp.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        if (cArgs.containsKey("--perft")) {
+            int depth = cArgs.getInt("--perft");
+            if (depth <= 0) {
+                usage();
+            }
+            Board start = new Board(Board.INITIAL_PIECES, Side.WHITE);
+            if (cArgs.containsKey("--position")) {
+                start = Perft.position(cArgs.getFirst("--position"));
+                if (start == null) {
+                    usage();
+                }
+            }
+            Perft.run(start, depth, cArgs.containsKey("--divide"),
+                      threads);
+            return;
+        }
+        if (cArgs.containsKey("--buildtb")) {
+            int pieces = TablebaseBuilder.DEFAULT_PIECES;
+            if (cArgs.containsKey("--tbpieces")) {
+                pieces = cArgs.getInt("--tbpieces");
+                if (pieces < 2 || pieces > 2 * Tablebase.MAX_PIECES) {
+                    usage();
+                }
+            }
+            String dir = cArgs.getFirst("--buildtb");
+            try {
+                new TablebaseBuilder(pieces, threads).build(dir);
+            } catch (IOException excp) {
+                System.err.printf("Error: could not build %s: %s%n", dir,
+                                  excp.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        if (cArgs.containsKey("--buildbook")) {
+            int plies = BookBuilder.DEFAULT_PLIES;
+            int depth = BookBuilder.DEFAULT_DEPTH;
+            if (cArgs.containsKey("--bookplies")) {
+                plies = cArgs.getInt("--bookplies");
+                if (plies <= 0) {
+                    usage();
+                }
+            }
+            if (cArgs.containsKey("--bookdepth")) {
+                depth = cArgs.getInt("--bookdepth");
+                if (depth < 2) {
+                    usage();
+                }
+            }
+            String out = cArgs.getFirst("--buildbook");
+            try {
+                new BookBuilder(plies, depth, threads).build(out);
+            } catch (IOException excp) {
+                System.err.printf("Error: could not build %s: %s%n", out,
+                                  excp.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        if (cArgs.containsKey("--selfplay")) {
+            int games = cArgs.getInt("--selfplay");
+            if (games <= 0) {
+                usage();
+            }
+            String out = DEFAULT_SELFPLAY_FILE;
+            if (cArgs.containsKey("--out")) {
+                out = cArgs.getFirst("--out");
+            }
+            SelfPlay selfPlay = new SelfPlay(games, threads, seed, time, hash,
+                                             cArgs.containsKey("--mcts"));
+            if (cArgs.containsKey("--archive")) {
+                selfPlay.setArchive(cArgs.getFirst("--archive"));
+            }
+            try {
+                selfPlay.run(out);
+            } catch (IOException excp) {
+                System.err.printf("Error: could not write %s: %s%n", out,
+                                  excp.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
         Game game = new Game(2 - ai, side, seed, time);
+        game.setHashSize(hash);
+        game.setThreads(threads);
+        game.setMonteCarlo(cArgs.containsKey("--mcts"));
+        game.setPonder(cArgs.containsKey("--ponder"));
+        if (cArgs.containsKey("--proof")) {
+            long budget = cArgs.getLong("--proof");
+            if (budget < 0) {
+                usage();
+            }
+            game.setProofBudget(budget);
+        }
+        if (cArgs.containsKey("--tb")) {
+            String dir = cArgs.getFirst("--tb");
+            try {
+                game.setTablebase(Tablebase.open(dir));
+            } catch (IOException excp) {
+                System.err.printf("Error: could not open %s: %s%n", dir,
+                                  excp.getMessage());
+                System.exit(1);
+            }
+        }
+        if (cArgs.containsKey("--book")) {
+            String book = cArgs.getFirst("--book");
+            try {
+                game.setBook(OpeningBook.open(book));
+            } catch (IOException excp) {
+                System.err.printf("Error: could not open %s: %s%n", book,
+                                  excp.getMessage());
+                System.exit(1);
+            }
+        }
         game.play();
     }
 
@@ -77,7 +236,17 @@ public class Main {
         System.out.println("-Command line initialization-");
         System.out.println("Initialize with the following format:");
         System.out.println("java loa.Main [ --white ] [ --ai=N ] [ --seed=N ] "
-                           + "[ --time=LIM ] [ --debug=N ] [ --display ]");
+                           + "[ --time=LIM ] [ --debug=N ] [ --display ] "
+                           + "[ --hash=MB ] [ --threads=N ] [ --mcts ] "
+                           + "[ --selfplay=N ] [ --out=FILE ] "
+                           + "[ --perft=D ] [ --position=P ] [ --divide ] "
+                           + "[ --ponder ] "
+                           + "[ --book=FILE ] [ --buildbook=FILE ] "
+                           + "[ --bookplies=N ] [ --bookdepth=N ] "
+                           + "[ --tb=DIR ] [ --buildtb=DIR ] "
+                           + "[ --tbpieces=N ] [ --proof=N ] "
+                           + "[ --archive=FILE ] [ --replay=FILE ] "
+                           + "[ --game=K ]");
         System.out.println("Bracketed parameters are optional:");
         System.out.println("[--white] indicates the player plays as white.");
         System.out.println("[ --ai=N ] provides the number N of AI players. "
@@ -90,6 +259,57 @@ public class Main {
                 + " statements to be printed. N is an integer > 0.");
         System.out.println("[ --display ] creates a GUI interface to play"
                 + " the game. NOT CURRENTLY IMPLEMENTED.");
+        System.out.println("[ --hash=MB ] sets the size MB in megabytes of"
+                + " the AI's transposition table. MB is an integer > 0.");
+        System.out.println("[ --threads=N ] sets the number N of threads the"
+                + " AI searches with. N is an integer > 0.");
+        System.out.println("[ --mcts ] makes the AI use Monte Carlo tree"
+                + " search instead of alpha-beta search.");
+        System.out.println("[ --selfplay=N ] plays N games between two AIs"
+                + " without a human, --threads=T of them at once, game i"
+                + " using seed S + i, which chooses its first random"
+                + " moves.");
+        System.out.println("[ --out=FILE ] names the file to which"
+                + " --selfplay appends one line per game. Default "
+                + DEFAULT_SELFPLAY_FILE + ".");
+        System.out.println("[ --perft=D ] prints the number of positions"
+                + " 1 to D plies from the initial position, on --threads=T"
+                + " threads, and exits.");
+        System.out.println("[ --position=P ] makes --perft count from P:"
+                + " initial, initial2 or eight rows of b, w and -, row 8"
+                + " first, separated by /, optionally followed by :b or :w"
+                + " for the side to move (default white).");
+        System.out.println("[ --divide ] makes --perft also print the count"
+                + " after each first move.");
+        System.out.println("[ --ponder ] lets the alpha-beta AI search while"
+                + " the human player thinks.");
+        System.out.println("[ --book=FILE ] makes the alpha-beta AI play"
+                + " moves from the opening book FILE when it can.");
+        System.out.println("[ --buildbook=FILE ] builds an opening book in"
+                + " FILE on --threads=T threads, and exits.");
+        System.out.println("[ --bookplies=N ] sets the depth N in plies of"
+                + " the book built. Default " + BookBuilder.DEFAULT_PLIES
+                + ".");
+        System.out.println("[ --bookdepth=N ] sets the depth N >= 2 in plies"
+                + " to which book moves are searched. Default "
+                + BookBuilder.DEFAULT_DEPTH + ".");
+        System.out.println("[ --tb=DIR ] makes the alpha-beta AI use the"
+                + " endgame tablebases in directory DIR.");
+        System.out.println("[ --buildtb=DIR ] builds endgame tablebases in"
+                + " directory DIR on --threads=T threads, and exits.");
+        System.out.println("[ --tbpieces=N ] sets the largest total number"
+                + " N of pieces in the tablebases built, from 2 to 6. "
+                + "Default " + TablebaseBuilder.DEFAULT_PIECES + ".");
+        System.out.println("[ --proof=N ] makes the alpha-beta AI also run"
+                + " a proof-number search of at most N positions (e.g. "
+                + ProofSearch.DEFAULT_BUDGET + ") for a forced win each"
+                + " move, and play the win if it proves one.");
+        System.out.println("[ --archive=FILE ] makes --selfplay also append"
+                + " each game to the binary game archive FILE.");
+        System.out.println("[ --replay=FILE ] replays and checks every game"
+                + " in the game archive FILE, and exits.");
+        System.out.println("[ --game=K ] makes --replay show game K (from 0)"
+                + " move by move instead.");
         System.out.println("\n-In game instructions-");
         System.out.println("All input should follow the following format:");
         System.out.println("[ S ] cAnA-cBnB [ C ]");
@@ -102,8 +322,16 @@ public class Main {
         System.out.println("    'q' quits the current game.");
         System.out.println("    't' displays the current"
                            + "players remaining time.");
+        System.out.println("    'c' displays the engine's operation counts"
+                + " since the last 'c' (with -Dloa.counters=true).");
+        System.out.println("    'e' displays the AI's search statistics,"
+                + " which are also published over JMX as "
+                + EngineStats.NAME + ".");
         System.out.println("[ C ] is optional commentary and is ignored by"
                 + " the program.");
         System.exit(1);
     }
+
+    /** The file to which --selfplay writes by default. */
+    static final String DEFAULT_SELFPLAY_FILE = "selfplay.txt";
 }
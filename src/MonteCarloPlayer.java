@@ -0,0 +1,58 @@
+package loa;
+
+import static loa.Side.*;
+
+/** An automated Player that chooses its moves by Monte Carlo tree search
+ *  (see MonteCarloSearch) on its game's ForkJoinPool.
+ *  @author Nick Holt*/
+class MonteCarloPlayer extends Player {
+
+    /** A MonteCarloPlayer that plays the SIDE pieces in GAME. */
+    MonteCarloPlayer(Side side, Game game) {
+        super(side, game);
+    }
+
+    @Override
+    Move makeMove() {
+        Game game = getGame();
+        MutableBoard board = game.getBoard();
+        assert board.turn() == side();
+        int move = board.winningMove();
+        if (move == 0) {
+            TimeManager timer = TimeManager.unlimited();
+            long playouts = DEFAULT_PLAYOUTS;
+            if (game.hasTimeLimit()) {
+                timer = TimeManager.forMove(game.timeRemainingMillis(side()));
+                playouts = Long.MAX_VALUE;
+            }
+            MonteCarloSearch search =
+                new MonteCarloSearch(board, game.getForkJoinPool(),
+                                     game.getRandomSource().nextLong());
+            long start = System.nanoTime();
+            move = search.bestMove(timer, playouts);
+            game.getEngineStats().record(0, search.playouts(),
+                (System.nanoTime() - start) / NANOS_PER_MILLI, 0, 0, 0);
+        }
+        if (move == 0) {
+            System.out.printf("Player %s has no legal moves. %s wins.\n"
+                    , side(), side().opponent());
+            System.exit(1);
+        }
+        Move result = Move.create(move);
+        if (game.isQuiet()) {
+            return result;
+        } else if (side() == WHITE) {
+            System.out.println("W::" + result);
+        } else {
+            assert side() == BLACK;
+            System.out.println("B::" + result);
+        }
+        return result;
+    }
+
+    /** The number of playouts per move when there is no time limit. */
+    private static final long DEFAULT_PLAYOUTS = 20000;
+
+    /** Nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+}
@@ -0,0 +1,274 @@
+package loa;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A Monte Carlo tree search (UCT) for the best move of the side to move
+ *  on a Board.  One tree is shared by all the threads of a ForkJoinPool:
+ *  each thread descends it on its own board copy, adding a virtual loss
+ *  to every node it passes so that concurrent descents spread out, plays
+ *  a random game from the leaf it reaches (with a Playout kernel and a
+ *  random number generator of its own), and adds the result to the nodes
+ *  on its path.  Visit and win counts are atomic; only expanding a
+ *  node takes a lock.
+ *  @author Nick Holt
+ */
+class MonteCarloSearch {
+
+    /** A search of the position on BOARD, running on POOL, whose random
+     *  moves are determined by SEED.  BOARD is not modified. */
+    MonteCarloSearch(Board board, ForkJoinPool pool, long seed) {
+        _board = new MutableBoard(board);
+        _pool = pool;
+        _random = new SplittableRandom(seed);
+        _root = new Node(0);
+        _root.expand(_board);
+    }
+
+    /** Run playouts until TIMER's soft deadline or until MAXPLAYOUTS have
+     *  been played, and return the code of the most visited move, or 0 if
+     *  the side to move has no legal moves. */
+    int bestMove(TimeManager timer, long maxPlayouts) {
+        Node[] children = _root.children();
+        if (children.length == 0) {
+            return 0;
+        }
+        int batch = _pool.getParallelism() * BATCH_PER_THREAD;
+        while (_playouts.get() < maxPlayouts && !timer.softExpired()) {
+            _pool.invoke(new PlayoutTask(batch, _random.split()));
+        }
+        Node best = children[0];
+        for (Node child : children) {
+            if (child.visits() > best.visits()) {
+                best = child;
+            }
+        }
+        Reporter.debug(2, "%d playouts; %s won %d of %d half-points"
+                , _playouts.get(), Move.create(best.move()), best.reward()
+                , 2 * best.visits());
+        return best.move();
+    }
+
+    /** Return the number of playouts played. */
+    long playouts() {
+        return _playouts.get();
+    }
+
+    /** Run one iteration of the search on BOARD, a copy of the root
+     *  position, using the buffers of WORKER.  BOARD is restored at the
+     *  end. */
+    private void iterate(MutableBoard board, Worker worker) {
+        Node[] path = worker.path;
+        int depth = 0;
+        Node node = _root;
+        node.addVisit();
+        path[depth] = node;
+        while (depth < path.length - 1) {
+            Node[] children = node.children();
+            if (children == null) {
+                if (node.visits() <= EXPAND_VISITS) {
+                    break;
+                }
+                node.expand(board);
+                children = node.children();
+            }
+            if (children.length == 0) {
+                break;
+            }
+            node = select(node, children);
+            node.addVisit();
+            worker.captures[depth] = board.makeMove(node.move());
+            depth += 1;
+            path[depth] = node;
+            if (board.piecesContiguous(board.turn().opponent())) {
+                break;
+            }
+        }
+        Side winner = null;
+        int result = worker.playout.play(board.pieces(board.turn()),
+                                         board.pieces(board.turn().opponent()),
+                                         MAX_PLAYOUT);
+        _playouts.incrementAndGet();
+        if (result == Playout.WIN) {
+            winner = board.turn();
+        } else if (result == Playout.LOSS) {
+            winner = board.turn().opponent();
+        }
+        for (int i = depth; i >= 0; i--) {
+            Side mover = board.turn().opponent();
+            if (winner == null) {
+                path[i].addReward(1);
+            } else if (winner == mover) {
+                path[i].addReward(2);
+            }
+            if (i > 0) {
+                board.unmakeMove(path[i].move(), worker.captures[i - 1]);
+            }
+        }
+    }
+
+    /** Return the child in CHILDREN (the children of PARENT) with the
+     *  highest upper confidence bound for the side to move at PARENT. */
+    private Node select(Node parent, Node[] children) {
+        double logVisits = Math.log(Math.max(parent.visits(), 1));
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits = child.visits();
+            if (visits == 0) {
+                return child;
+            }
+            double value = child.reward() / (2.0 * visits)
+                + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /** A node of the search tree: a position reached by a move. */
+    private static class Node {
+        /** A node reached by the move with code MOVE (0 for the root). */
+        Node(int move) {
+            _move = move;
+        }
+
+        /** Return the code of the move leading here. */
+        int move() {
+            return _move;
+        }
+
+        /** Return my children, or null if I am not expanded. */
+        Node[] children() {
+            return _children;
+        }
+
+        /** Create my children, one for each legal move on BOARD, which
+         *  holds my position, unless that has already been done. */
+        synchronized void expand(Board board) {
+            if (_children == null) {
+                int[] moves = new int[Board.MAX_MOVES];
+                int count = board.generateMoves(moves, 0);
+                Node[] children = new Node[count];
+                for (int i = 0; i < count; i++) {
+                    children[i] = new Node(moves[i]);
+                }
+                _children = children;
+            }
+        }
+
+        /** Return the number of descents through me, including those
+         *  still in progress (the virtual loss). */
+        int visits() {
+            return _visits.get();
+        }
+
+        /** Return the half-points won by the side that moved here. */
+        long reward() {
+            return _reward.get();
+        }
+
+        /** Record a descent through me. */
+        void addVisit() {
+            _visits.incrementAndGet();
+        }
+
+        /** Add HALFPOINTS to my reward. */
+        void addReward(int halfPoints) {
+            _reward.addAndGet(halfPoints);
+        }
+
+        /** The move leading here. */
+        private final int _move;
+        /** My children, or null. */
+        private volatile Node[] _children;
+        /** Number of descents through me. */
+        private final AtomicInteger _visits = new AtomicInteger();
+        /** Half-points won from here by the side that moved here. */
+        private final AtomicLong _reward = new AtomicLong();
+    }
+
+    /** The state used by one thread's iterations. */
+    private static class Worker {
+        /** A Worker whose playouts use RANDOM. */
+        Worker(SplittableRandom random) {
+            playout = new Playout(random);
+        }
+
+        /** Nodes on the current path from the root. */
+        final Node[] path = new Node[Search.MAX_PLY];
+        /** Capture flags of the moves on the current path. */
+        final boolean[] captures = new boolean[Search.MAX_PLY];
+        /** Plays the random games. */
+        final Playout playout;
+    }
+
+    /** A batch of iterations, split among the pool's threads. */
+    private class PlayoutTask extends RecursiveAction {
+        /** A task running ITERATIONS iterations, with random moves
+         *  from RANDOM. */
+        PlayoutTask(int iterations, SplittableRandom random) {
+            _iterations = iterations;
+            _taskRandom = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (_iterations > LEAF_ITERATIONS) {
+                int half = _iterations / 2;
+                invokeAll(new PlayoutTask(half, _taskRandom.split()),
+                          new PlayoutTask(_iterations - half, _taskRandom));
+                return;
+            }
+            MutableBoard board = new MutableBoard(_board);
+            Worker worker = new Worker(_taskRandom);
+            for (int i = 0; i < _iterations; i++) {
+                iterate(board, worker);
+            }
+        }
+
+        /** The number of iterations to run. */
+        private final int _iterations;
+        /** The source of this task's random moves. */
+        private final SplittableRandom _taskRandom;
+
+        /** For Serializable, which ForkJoinTask implements. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** The root position. */
+    private final MutableBoard _board;
+
+    /** The threads that run iterations. */
+    private final ForkJoinPool _pool;
+
+    /** Source of the random number generators of the tasks.  Used only
+     *  by the thread calling bestMove. */
+    private final SplittableRandom _random;
+
+    /** The root of the search tree. */
+    private final Node _root;
+
+    /** The number of playouts played. */
+    private final AtomicLong _playouts = new AtomicLong();
+
+    /** The number of iterations per thread between time checks. */
+    private static final int BATCH_PER_THREAD = 256;
+
+    /** Tasks with at most this many iterations are not split. */
+    private static final int LEAF_ITERATIONS = 64;
+
+    /** Nodes are expanded once they have been visited this often. */
+    private static final int EXPAND_VISITS = 1;
+
+    /** The longest playout, in plies; longer games are drawn. */
+    private static final int MAX_PLAYOUT = 200;
+
+    /** The UCT exploration constant. */
+    private static final double EXPLORATION = 0.7;
+}
@@ -12,20 +12,56 @@ class Move {
      * second advantage is useful when you are trying to speed up the creation
      * of Moves for use in automated searching for moves.  You can (if you
      * want) create just one instance of the Move representing 1-5, for example
-     * and return it whenever that move is requested. */
+     * and return it whenever that move is requested.
+     *
+     * We do just that: every move that stays on the board and runs along a
+     * row, column or diagonal is created once, in MOVES, and shared.  Moves
+     * therefore carry no per-game state; whether a move captured is
+     * recorded by the Board that made it. */
 
     /** Return a move of the piece at COLUMN0, ROW0 to COLUMN1, ROW1. */
     static Move create(int column0, int row0, int column1, int row1) {
+        if (BitBoards.onBoard(column0, row0)
+                && BitBoards.onBoard(column1, row1)) {
+            Move move = MOVES[encode(BitBoards.square(column0, row0),
+                                     BitBoards.square(column1, row1))];
+            if (move != null) {
+                return move;
+            }
+        }
         return new Move(column0, row0, column1, row1);
     }
 
+    /** Return the move encoded as CODE by {@link #encode}. CODE must
+     *  denote a move along a row, column or diagonal. */
+    static Move create(int code) {
+        return MOVES[code];
+    }
+
+    /** Return the compact integer encoding of a move from square FROM to
+     *  square TO (squares as in {@link BitBoards}). Such codes are what
+     *  Board.generateMoves produces and lie in the range 0 to
+     *  NUM_CODES - 1. */
+    static int encode(int from, int to) {
+        return from | (to << SQUARE_BITS);
+    }
+
+    /** Return the starting square of the move encoded as CODE. */
+    static int from(int code) {
+        return code & SQUARE_MASK;
+    }
+
+    /** Return the ending square of the move encoded as CODE. */
+    static int to(int code) {
+        return (code >>> SQUARE_BITS) & SQUARE_MASK;
+    }
+
     /** A new Move of the piece at COL0, ROW0 to COL1, ROW1. */
     private Move(int col0, int row0, int col1, int row1) {
         _col0 = col0;
         _row0 = row0;
         _col1 = col1;
         _row1 = row1;
-
     }
 
     /** Return the column at which this move starts, as an index in 1--8. */
@@ -59,25 +95,25 @@ class Move {
             return false;
         }
         Move move2 = (Move) obj;
-        return this.hashCode() == move2.hashCode();
+        return _col0 == move2._col0 && _row0 == move2._row0
+            && _col1 == move2._col1 && _row1 == move2._row1;
     }
 
-    /** Hashcodes are assigned based on the following format:
-     *  c0r0c1r1C. Where c0 is the first column, r0 is the
-     *  first row (given as an integer), c1 is the second
-     *  column, r1 is the second row, and C represents the
-     *  boolean _CAPTURE, and is 0 iff _CAPTURE is false,
-     *  and 1 otherwise.
+    /** Hashcodes pack c0, r0, c1 and r1 (the first column and row and
+     *  the second column and row) into four bits each, so distinct moves
+     *  whose coordinates lie in 0-15 have distinct hash codes.
      *  @return hashCode.
      */
+    @Override
     public int hashCode() {
-        int cap = 0;
-        if (_capture) {
-            cap = 1;
-        }
-        return Integer.parseInt(String.valueOf(getCol0())
-                + String.valueOf(getRow0()) + String.valueOf(getCol1())
-                + String.valueOf(getRow1()) + String.valueOf(cap));
+        return (((((_col0 << 4) | _row0) << 4) | _col1) << 4) | _row1;
+    }
+
+    /** Return the encoding of this move as by {@link #encode}. Requires
+     *  that this move lies on the board. */
+    int code() {
+        return encode(BitBoards.square(_col0, _row0),
+                      BitBoards.square(_col1, _row1));
     }
 
     @Override
@@ -88,21 +124,33 @@ class Move {
                 + String.valueOf(getRow1());
     }
 
-    /** Return CAPTURE. */
-    public boolean getCapture() {
-        return _capture;
-    }
-
-    /** Sets CAPTURE. */
-    public void setCapture(boolean capture) {
-        _capture = capture;
-    }
-
-    /** True iff this move capture(s/d) a piece. Always
-     *  false at least until move is played.*/
-    private boolean _capture = false;
-
     /** Column and row numbers of starting and ending points. */
     private int _col0, _row0, _col1, _row1;
 
+    /** The number of bits used for each square in a move code. */
+    private static final int SQUARE_BITS = 6;
+
+    /** Mask extracting one square from a move code. */
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+
+    /** The number of distinct move codes; all codes are less than this. */
+    static final int NUM_CODES = 1 << (2 * SQUARE_BITS);
+
+    /** The shared instances of all moves along a row, column or diagonal,
+     *  indexed by code. Other entries are null. */
+    private static final Move[] MOVES = new Move[NUM_CODES];
+
+    static {
+        for (int from = 0; from < BitBoards.SQUARES; from++) {
+            for (int d = 0; d < BitBoards.UNIT_VECTORS.length; d++) {
+                for (int k = 1, to = BitBoards.target(from, d, 1); to >= 0;
+                     k++, to = BitBoards.target(from, d, k)) {
+                    MOVES[encode(from, to)] =
+                        new Move(BitBoards.colOf(from), BitBoards.rowOf(from),
+                                 BitBoards.colOf(to), BitBoards.rowOf(to));
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,92 @@
+package loa;
+
+/** Orders the moves of a Search so that the moves likeliest to cause a
+ *  cutoff are tried first: the transposition-table move, then captures,
+ *  then the killer moves of the ply (quiet moves that recently caused a
+ *  cutoff at the same ply), then the rest by their history score (how
+ *  often and how deep the same from-to move has caused cutoffs).  Each
+ *  Search has its own MoveOrdering.
+ *  @author Nick Holt
+ */
+class MoveOrdering {
+
+    /** Score the moves MOVES[START .. END-1] of the position on BOARD,
+     *  PLY plies from the root, into SCORES[START .. END-1].  HASHMOVE is
+     *  the transposition table's move for the position, or 0. */
+    void score(Board board, int[] moves, int[] scores, int start, int end,
+               int ply, int hashMove) {
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            if (move == hashMove) {
+                scores[i] = HASH_MOVE;
+            } else if (board.isCapture(move)) {
+                scores[i] = CAPTURE + _history[move];
+            } else if (move == _killers[ply][0]) {
+                scores[i] = KILLER;
+            } else if (move == _killers[ply][1]) {
+                scores[i] = KILLER - 1;
+            } else {
+                scores[i] = _history[move];
+            }
+        }
+    }
+
+    /** Move the highest-scoring of MOVES[I .. END-1] (scored in SCORES)
+     *  to index I, keeping SCORES in step. */
+    static void pickNext(int[] moves, int[] scores, int i, int end) {
+        int best = i;
+        for (int j = i + 1; j < end; j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            int move = moves[i], score = scores[i];
+            moves[i] = moves[best];
+            scores[i] = scores[best];
+            moves[best] = move;
+            scores[best] = score;
+        }
+    }
+
+    /** Record that MOVE, a quiet (non-capturing) move, caused a cutoff
+     *  in a search of DEPTH plies, PLY plies from the root. */
+    void recordCutoff(int move, int ply, int depth) {
+        if (_killers[ply][0] != move) {
+            _killers[ply][1] = _killers[ply][0];
+            _killers[ply][0] = move;
+        }
+        _history[move] += depth * depth;
+        if (_history[move] > MAX_HISTORY) {
+            for (int i = 0; i < _history.length; i++) {
+                _history[i] /= 2;
+            }
+        }
+    }
+
+    /** Prepare for a new search: forget the killers and reduce the
+     *  history scores, which then count for less than new ones. */
+    void newSearch() {
+        for (int[] killers : _killers) {
+            killers[0] = killers[1] = 0;
+        }
+        for (int i = 0; i < _history.length; i++) {
+            _history[i] /= 2;
+        }
+    }
+
+    /** The two killer moves of each ply, most recent first. */
+    private final int[][] _killers = new int[Search.MAX_PLY][2];
+
+    /** History scores, indexed by move code (that is, by from and to
+     *  square). */
+    private final int[] _history = new int[Move.NUM_CODES];
+
+    /** Scores of the hash move, of captures (before adding their history)
+     *  and of the first killer move. */
+    private static final int HASH_MOVE = 1 << 30, CAPTURE = 1 << 29,
+        KILLER = 1 << 28;
+
+    /** History scores are halved when one passes this. */
+    private static final int MAX_HISTORY = 1 << 20;
+}
@@ -1,7 +1,6 @@
 package loa;
 
-import static loa.Piece.*;
-import static loa.Side.*;
+import static loa.BitBoards.*;
 
 /** Represents the state of a game of Lines of Action, and allows making moves.
  *  @author Nick Holt*/
@@ -18,6 +17,12 @@ class MutableBoard extends Board {
         super(initialContents, player);
     }
 
+    /** A MutableBoard with BLACK's pieces on the squares in BLACK and
+     *  WHITE's on those in WHITE, in which it is PLAYER's move. */
+    MutableBoard(long black, long white, Side player) {
+        super(black, white, player);
+    }
+
     /** A new board in the standard initial position. */
     MutableBoard() {
         super();
@@ -29,46 +34,67 @@ class MutableBoard extends Board {
         super(board);
     }
 
-    /** Assuming isLegal(MOVE), make MOVE. */
+    /** Assuming isLegal(MOVE), make MOVE. The opponent is then on move. */
     void makeMove(Move move) {
-        addMove(move);
-        Piece[][] config = getConfig();
-        Side player = getPlayer();
-        if (config[move.getRow1()][move.getCol1()].side()
-            == player.opponent()) {
-            move.setCapture(true);
-        }
-        if (player.opponent() == BLACK) {
-            config[move.getRow1()][move.getCol1()] = WP;
-        } else if (player.opponent() == WHITE) {
-            config[move.getRow1()][move.getCol1()] = BP;
-        } else {
-            assert false;
-        }
-        config[move.getRow0()][move.getCol0()] = EMP;
+        long key = hashKey();
+        addMove(move.code(), makeMove(move.code()), key);
     }
 
     /** Retract (unmake) one move, returning to the state immediately before
      *  that move.  Requires that movesMade () > 0. */
     void retract() {
         assert movesMade() > 0;
-        Piece[][] config = getConfig();
         Move move = getMove(movesMade() - 1);
-        Side player = getPlayer();
-        Piece me, target;
+        boolean capture = getCapture(movesMade() - 1);
         removeMove();
-        if (player.opponent() == BLACK) {
-            me = WP;
-            target = BP;
-        } else {
-            assert player.opponent() == WHITE;
-            me = BP;
-            target = WP;
+        unmakeMove(move.code(), capture);
+        assert hashKey() == getKey(movesMade());
+    }
+
+    /** Assuming MOVE is the code of a legal move, make it without
+     *  recording it in the move history, and return true iff it captured
+     *  a piece. The opponent is then on move. Searches use this together
+     *  with unmakeMove. */
+    boolean makeMove(int move) {
+        Side player = turn(), opponent = player.opponent();
+        int from = Move.from(move), to = Move.to(move);
+        boolean capture = isCapture(move);
+        if (capture) {
+            removePiece(to, opponent);
         }
-        if (!move.getCapture()) {
-            target = EMP;
+        removePiece(from, player);
+        addPiece(to, player);
+        setTurn(opponent);
+        return capture;
+    }
+
+    /** Undo makeMove(MOVE), which returned CAPTURE and was the last move
+     *  made. */
+    void unmakeMove(int move, boolean capture) {
+        Side player = turn().opponent();
+        int from = Move.from(move), to = Move.to(move);
+        removePiece(to, player);
+        addPiece(from, player);
+        if (capture) {
+            addPiece(to, player.opponent());
+        }
+        setTurn(player);
+    }
+
+    /** Return the code of a legal move that would leave all of the
+     *  mover's pieces contiguous, or 0 if there is none. */
+    int winningMove() {
+        Side player = turn();
+        int[] moves = new int[MAX_MOVES];
+        int count = generateMoves(moves, 0);
+        for (int i = 0; i < count; i++) {
+            boolean capture = makeMove(moves[i]);
+            boolean win = piecesContiguous(player);
+            unmakeMove(moves[i], capture);
+            if (win) {
+                return moves[i];
+            }
         }
-        config[move.getRow1()][move.getCol1()] = target;
-        config[move.getRow0()][move.getCol0()] = me;
+        return 0;
     }
 }
@@ -0,0 +1,120 @@
+package loa;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/** An opening book: a file of RECORD_SIZE-byte records, each giving a
+ *  book move in a position, sorted by the hash key of the position.  A
+ *  record holds, in big-endian order,
+ *      the position's hash key (8 bytes),
+ *      the move's code (2 bytes),
+ *      the move's weight, its relative chance of being played (2 bytes,
+ *      unsigned), and
+ *      the move's score for the side playing it (4 bytes).
+ *  The file is mapped into memory rather than read, so that opening it
+ *  costs nothing and the book does not occupy the heap.  See BookBuilder
+ *  for the construction of books.
+ *  @author Nick Holt */
+class OpeningBook {
+
+    /** The size of a record, in bytes. */
+    static final int RECORD_SIZE = 16;
+
+    /** Offsets of the fields of a record. */
+    static final int KEY = 0, MOVE = 8, WEIGHT = 10, SCORE = 12;
+
+    /** Return the book in the file named FILENAME. */
+    static OpeningBook open(String fileName) throws IOException {
+        try (FileChannel channel =
+             FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % RECORD_SIZE != 0 || size / RECORD_SIZE > MAX_RECORDS) {
+                throw new IOException("not an opening book: " + fileName);
+            }
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY,
+                                               0, size));
+        }
+    }
+
+    /** A book whose records are RECORDS. */
+    OpeningBook(ByteBuffer records) {
+        _records = records;
+        _size = records.limit() / RECORD_SIZE;
+    }
+
+    /** Return the number of records in this book. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the code of a book move in the position whose hash key is
+     *  KEY, chosen at random with RANDOM in proportion to the moves'
+     *  weights, or 0 if the position is not in the book. */
+    int probe(long key, Random random) {
+        int first = firstRecord(key);
+        long total = 0;
+        int end;
+        for (end = first; end < _size && key(end) == key; end += 1) {
+            total += weight(end);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long pick = (long) (random.nextDouble() * total);
+        for (int k = first; k < end; k += 1) {
+            pick -= weight(k);
+            if (pick < 0) {
+                return move(k);
+            }
+        }
+        return move(end - 1);
+    }
+
+    /** Return the hash key of record K. */
+    long key(int k) {
+        return _records.getLong(k * RECORD_SIZE + KEY);
+    }
+
+    /** Return the move code of record K. */
+    int move(int k) {
+        return _records.getShort(k * RECORD_SIZE + MOVE);
+    }
+
+    /** Return the weight of record K. */
+    int weight(int k) {
+        return _records.getChar(k * RECORD_SIZE + WEIGHT);
+    }
+
+    /** Return the score of record K. */
+    int score(int k) {
+        return _records.getInt(k * RECORD_SIZE + SCORE);
+    }
+
+    /** Return the index of the first record whose key is not less than
+     *  KEY, or size() if there is none. */
+    private int firstRecord(long key) {
+        int lo = 0, hi = _size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (key(mid) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** The records. */
+    private final ByteBuffer _records;
+    /** The number of records. */
+    private final int _size;
+
+    /** The most records a book may have, so that every byte offset fits
+     *  in an int. */
+    private static final long MAX_RECORDS = Integer.MAX_VALUE / RECORD_SIZE;
+}
@@ -0,0 +1,205 @@
+package loa;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static loa.Side.*;
+
+/** Counts of the positions reachable in a given number of plies (perft),
+ *  used to check the move generator and to time it.  Positions in which
+ *  either side's pieces are contiguous end the game and are not searched
+ *  further.
+ *  @author Nick Holt */
+class Perft {
+
+    /** A Perft of the positions reachable from BOARD. */
+    Perft(Board board) {
+        _board = new MutableBoard(board);
+    }
+
+    /** Return the number of positions DEPTH plies from my board. */
+    long count(int depth) {
+        return count(new MutableBoard(_board), depth,
+                     new int[(depth + 1) * Board.MAX_MOVES], 0);
+    }
+
+    /** Return the number of positions DEPTH plies from my board after each
+     *  of its legal moves, in the order of legalMoves(), which is also the
+     *  order of the moves returned by moves().  Uses POOL to count the
+     *  moves in parallel if it is not null. */
+    long[] divide(int depth, ForkJoinPool pool) {
+        int[] moves = moves();
+        long[] result = new long[moves.length];
+        if (depth <= 0) {
+            return result;
+        }
+        ArrayList<RootTask> tasks = new ArrayList<RootTask>();
+        for (int i = 0; i < moves.length; i += 1) {
+            RootTask task = new RootTask(moves[i], depth - 1);
+            if (pool == null) {
+                result[i] = task.compute();
+            } else {
+                tasks.add(task);
+                pool.execute(task);
+            }
+        }
+        for (int i = 0; i < tasks.size(); i += 1) {
+            result[i] = tasks.get(i).join();
+        }
+        return result;
+    }
+
+    /** Return the codes of the legal moves from my board. */
+    int[] moves() {
+        int[] buffer = new int[Board.MAX_MOVES];
+        int n = _board.generateMoves(buffer, 0);
+        int[] result = new int[n];
+        System.arraycopy(buffer, 0, result, 0, n);
+        return result;
+    }
+
+    /** Return the number of positions DEPTH plies from BOARD, using
+     *  MOVES from index START on to hold the moves at each ply.  BOARD is
+     *  restored before returning. */
+    private static long count(MutableBoard board, int depth, int[] moves,
+                              int start) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (board.piecesContiguous(WHITE) || board.piecesContiguous(BLACK)) {
+            return 0;
+        }
+        int end = board.generateMoves(moves, start);
+        if (depth == 1) {
+            return end - start;
+        }
+        long result = 0;
+        for (int i = start; i < end; i += 1) {
+            boolean capture = board.makeMove(moves[i]);
+            result += count(board, depth - 1, moves, end);
+            board.unmakeMove(moves[i], capture);
+        }
+        return result;
+    }
+
+    /** Counts the positions below one root move, on its own board. */
+    private class RootTask extends RecursiveTask<Long> {
+
+        /** A task counting the positions DEPTH plies after MOVE. */
+        RootTask(int move, int depth) {
+            _move = move;
+            _depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            MutableBoard board = new MutableBoard(_board);
+            board.makeMove(_move);
+            return count(board, _depth,
+                         new int[(_depth + 1) * Board.MAX_MOVES], 0);
+        }
+
+        /** The root move. */
+        private final int _move;
+        /** The remaining depth, in plies. */
+        private final int _depth;
+
+        /** For Serializable, which ForkJoinTask implements. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Return the position described by SPEC, or null if SPEC is
+     *  malformed.  SPEC is "initial" (the standard position), "initial2"
+     *  (INITIAL_PIECES2) or eight rows separated by '/', from row 8 down
+     *  to row 1, each of eight characters 'b', 'w' or '-' from column a to
+     *  h.  It may end with ":b" or ":w" to say who is to move; white moves
+     *  by default. */
+    static Board position(String spec) {
+        Side player = WHITE;
+        String pieces = spec;
+        if (spec.endsWith(":b") || spec.endsWith(":w")) {
+            player = spec.endsWith(":b") ? BLACK : WHITE;
+            pieces = spec.substring(0, spec.length() - 2);
+        }
+        if (pieces.equals("initial")) {
+            return new Board(Board.INITIAL_PIECES, player);
+        } else if (pieces.equals("initial2")) {
+            return new Board(Board.INITIAL_PIECES2, player);
+        }
+        String[] rows = pieces.split("/", -1);
+        if (rows.length != BitBoards.SIZE) {
+            return null;
+        }
+        long black = 0, white = 0;
+        for (int k = 0; k < BitBoards.SIZE; k += 1) {
+            if (rows[k].length() != BitBoards.SIZE) {
+                return null;
+            }
+            int r = BitBoards.SIZE - k;
+            for (int c = 1; c <= BitBoards.SIZE; c += 1) {
+                long sq = 1L << BitBoards.square(c, r);
+                char ch = rows[k].charAt(c - 1);
+                if (ch == 'b') {
+                    black |= sq;
+                } else if (ch == 'w') {
+                    white |= sq;
+                } else if (ch != '-') {
+                    return null;
+                }
+            }
+        }
+        return new Board(black, white, player);
+    }
+
+    /** Print the perft counts to DEPTH from BOARD, timing the last.  If
+     *  DIVIDE, also print the count after each root move.  If THREADS > 1,
+     *  count root moves in parallel on that many threads; otherwise, unless
+     *  DIVIDE, count the whole tree at once. */
+    static void run(Board board, int depth, boolean divide, int threads) {
+        Perft perft = new Perft(board);
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            for (int d = 1; d <= depth; d += 1) {
+                long start = System.nanoTime();
+                long[] counts = null;
+                long total = 0;
+                if (divide || pool != null) {
+                    counts = perft.divide(d, pool);
+                    for (long count : counts) {
+                        total += count;
+                    }
+                } else {
+                    total = perft.count(d);
+                }
+                long millis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+                if (divide && d == depth) {
+                    int[] moves = perft.moves();
+                    for (int i = 0; i < moves.length; i += 1) {
+                        System.out.printf("%s %d%n", Move.create(moves[i]),
+                                          counts[i]);
+                    }
+                }
+                System.out.printf("perft(%d) = %d in %d ms (%d nodes/s)%n",
+                                  d, total, millis,
+                                  total * MILLIS_PER_SECOND
+                                  / Math.max(millis, 1));
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        if (Counters.ENABLED) {
+            Counters.dump(System.out);
+        }
+    }
+
+    /** The position counted from. */
+    private final MutableBoard _board;
+
+    /** Nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+    /** Milliseconds in a second. */
+    private static final long MILLIS_PER_SECOND = 1000;
+}
@@ -0,0 +1,61 @@
+package loa;
+
+import java.util.SplittableRandom;
+
+import static loa.BitBoards.*;
+
+/** A kernel that plays random games to their end on primitive state: the
+ *  position is just the two sides' bitboards.  Each thread should have
+ *  its own Playout, with its own random number generator; a Playout
+ *  allocates nothing while playing.
+ *  @author Nick Holt
+ */
+final class Playout {
+
+    /** Results of a playout, for the side to move at its start. */
+    static final int WIN = 1, LOSS = -1, UNFINISHED = 0;
+
+    /** A Playout choosing moves with RANDOM. */
+    Playout(SplittableRandom random) {
+        _random = random;
+    }
+
+    /** Play random moves from the position in which the side to move has
+     *  pieces MINE and the other side (which moved last) has THEIRS, for
+     *  at most MAXPLIES plies.  Return WIN or LOSS if the side to move
+     *  wins or loses, and UNFINISHED if neither side has won. */
+    int play(long mine, long theirs, int maxPlies) {
+        if (Counters.ENABLED) {
+            Counters.PLAYOUTS.increment();
+        }
+        if (connected(theirs)) {
+            return LOSS;
+        }
+        long mover = mine, other = theirs;
+        int sign = WIN;
+        for (int ply = 0; ply < maxPlies; ply++) {
+            int count = generateMoves(mover, other, _moves, 0);
+            if (count == 0) {
+                return -sign;
+            }
+            int move = _moves[_random.nextInt(count)];
+            long to = bit(Move.to(move));
+            mover ^= bit(Move.from(move)) | to;
+            other &= ~to;
+            if (connected(mover)) {
+                return sign;
+            }
+            long swap = mover;
+            mover = other;
+            other = swap;
+            sign = -sign;
+        }
+        return UNFINISHED;
+    }
+
+    /** The source of random moves. */
+    private final SplittableRandom _random;
+
+    /** Buffer for the moves of the current ply. */
+    private final int[] _moves = new int[Board.MAX_MOVES];
+}
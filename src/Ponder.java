@@ -0,0 +1,122 @@
+package loa;
+
+/** A background search made on the opponent's time.  While the opponent
+ *  of an AI thinks, the AI searches the position it expects to face: the
+ *  one after the reply the transposition table predicts, or, with no
+ *  prediction, the opponent's own position, which searches all replies.
+ *  The results go to the shared transposition table, so a later search
+ *  of the same positions is faster, and if the predicted reply is played
+ *  (a ponder hit) the AI may play the ponder's best move at once.
+ *  @author Nick Holt */
+class Ponder implements Runnable {
+
+    /** A ponder on BOARD, in which the opponent of the AI is to move,
+     *  sharing results through TABLE and using TABLEBASE, if not null.
+     *  BOARD is not modified. */
+    Ponder(Board board, TranspositionTable table, Tablebase tablebase) {
+        _board = new MutableBoard(board);
+        int predicted = predictedReply(table);
+        if (predicted != 0) {
+            _board.makeMove(predicted);
+        }
+        _key = _board.hashKey();
+        _search = new Search(_board, table);
+        _search.setSilent();
+        _search.setTablebase(tablebase);
+        if (Reporter.isEnabled(2)) {
+            Reporter.debug(2, "Pondering %s.", predicted == 0 ? "all replies"
+                           : Move.create(predicted));
+        }
+        _thread = new Thread(this, "ponder");
+        _thread.setDaemon(true);
+    }
+
+    /** Start pondering. */
+    void start() {
+        _start = System.nanoTime();
+        _thread.start();
+    }
+
+    /** Stop pondering and wait for the search to end, which it does
+     *  within a few nodes. */
+    void stop() {
+        _search.stop();
+        boolean interrupted = false;
+        while (_thread.isAlive()) {
+            try {
+                _thread.join();
+            } catch (InterruptedException excp) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        _millis = (System.nanoTime() - _start) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void run() {
+        _bestMove = _search.bestMove(Search.MAX_PLY - 1);
+    }
+
+    /** Return the hash key of the position pondered, which is the AI's
+     *  position if the ponder hits. */
+    long key() {
+        return _key;
+    }
+
+    /** Return the best move found for the position pondered, or 0 if no
+     *  iteration was completed.  Valid after stop(). */
+    int bestMove() {
+        return _search.depth() > 0 ? _bestMove : 0;
+    }
+
+    /** Return the search underlying this ponder.  Its statistics are valid
+     *  after stop(). */
+    Search search() {
+        return _search;
+    }
+
+    /** Return the time spent pondering, in milliseconds.  Valid after
+     *  stop(). */
+    long millis() {
+        return _millis;
+    }
+
+    /** Return the code of the reply that TABLE gives as best in my board's
+     *  position, or 0 if there is none or it is not legal there. */
+    private int predictedReply(TranspositionTable table) {
+        long entry = table.probe(_board.hashKey());
+        if (entry == 0) {
+            return 0;
+        }
+        int move = TranspositionTable.move(entry);
+        int[] moves = new int[Board.MAX_MOVES];
+        int count = _board.generateMoves(moves, 0);
+        for (int i = 0; i < count; i += 1) {
+            if (moves[i] == move) {
+                return move;
+            }
+        }
+        return 0;
+    }
+
+    /** The position pondered, owned by the ponder thread. */
+    private final MutableBoard _board;
+    /** The hash key of the position pondered. */
+    private final long _key;
+    /** The background search. */
+    private final Search _search;
+    /** The thread that runs the search. */
+    private final Thread _thread;
+    /** The value of System.nanoTime() when pondering started. */
+    private long _start;
+    /** The time spent pondering, in milliseconds. */
+    private long _millis;
+    /** The best move found, set by the ponder thread when it ends. */
+    private int _bestMove;
+
+    /** Nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+}
@@ -0,0 +1,235 @@
+package loa;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/** A depth-first proof-number (df-pn) search for a forced win of the side
+ *  to move (the attacker) on a MutableBoard.  Each position has a proof
+ *  number, the least number of positions whose outcome must be settled to
+ *  prove it a win for the attacker, and a disproof number, the same for
+ *  disproving it.  These are kept from the point of view of the side to
+ *  move as phi (the proof number if the attacker is to move, else the
+ *  disproof number) and delta (the other), so that a position's phi is
+ *  the least delta of its children and its delta is the sum of their
+ *  phis.  The search always expands the most-proving child, within
+ *  thresholds that let it stay in a subtree as long as that subtree
+ *  remains the most proving, and keeps the numbers of the positions it
+ *  has seen in its own hash table.  Positions MAX_DEPTH plies deep and
+ *  positions that repeat one earlier on the current line, which stand for
+ *  drawn positions, count as failures of the attacker.  Each search gives
+ *  up after a given number of positions.  One ProofSearch may be used for
+ *  any number of searches, one at a time, so that its table is allocated
+ *  once.
+ *  @author Nick Holt */
+class ProofSearch {
+
+    /** A searcher that visits at most BUDGET positions per search. */
+    ProofSearch(long budget) {
+        _budget = budget;
+    }
+
+    /** Return the code of a move that wins by force for the side to move
+     *  on BOARD, or 0 if none is proved within the budget or before stop()
+     *  is called.  BOARD is modified during the search, but restored at
+     *  its end. */
+    int solve(MutableBoard board) {
+        _board = board;
+        _attacker = board.turn();
+        _nodes = 0;
+        _aborted = false;
+        Arrays.fill(_keys, 0);
+        mid(0, INFINITY, INFINITY);
+        if (_aborted || lookupPhi(_board.hashKey()) != 0) {
+            return 0;
+        }
+        int end = _board.generateMoves(_moves, 0);
+        for (int i = 0; i < end; i += 1) {
+            childNumbers(i, 0);
+            if (_childDelta == 0) {
+                return _moves[i];
+            }
+        }
+        return 0;
+    }
+
+    /** Return a task that runs solve(BOARD) and, if it proves a win, stops
+     *  SEARCH, whose result the win supersedes.  The task may be stopped
+     *  by stop() even before it starts. */
+    Callable<Integer> task(final MutableBoard board, final Search search) {
+        _stopped = false;
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                int move = solve(board);
+                if (move != 0) {
+                    search.stop();
+                }
+                return move;
+            }
+        };
+    }
+
+    /** Stop the search as soon as possible.  May be called from any
+     *  thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Return the number of positions visited by the last solve(). */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Search the current position, which is not decided and PLY plies
+     *  from the root, until its phi reaches THPHI or its delta reaches
+     *  THDELTA, and record its numbers. */
+    private void mid(int ply, int thPhi, int thDelta) {
+        long key = _board.hashKey();
+        _path[ply] = key;
+        _nodes += 1;
+        if (_nodes > _budget || _stopped) {
+            _aborted = true;
+            return;
+        }
+        int start = ply * Board.MAX_MOVES,
+            end = _board.generateMoves(_moves, start);
+        while (true) {
+            int phi = INFINITY, delta = 0, best = start,
+                bestPhi = INFINITY, bestDelta = INFINITY, delta2 = INFINITY;
+            for (int i = start; i < end; i += 1) {
+                childNumbers(i, ply);
+                phi = Math.min(phi, _childDelta);
+                delta = add(delta, _childPhi);
+                if (_childDelta < bestDelta) {
+                    delta2 = bestDelta;
+                    best = i;
+                    bestPhi = _childPhi;
+                    bestDelta = _childDelta;
+                } else if (_childDelta < delta2) {
+                    delta2 = _childDelta;
+                }
+            }
+            if (phi >= thPhi || delta >= thDelta) {
+                store(key, phi, delta);
+                return;
+            }
+            int childThPhi = thDelta >= INFINITY ? INFINITY
+                : add(thDelta - delta, bestPhi);
+            int childThDelta = Math.min(thPhi, add(delta2, 1));
+            int move = _moves[best];
+            boolean capture = _board.makeMove(move);
+            mid(ply + 1, childThPhi, childThDelta);
+            _board.unmakeMove(move, capture);
+            if (_aborted) {
+                return;
+            }
+        }
+    }
+
+    /** Set _childPhi and _childDelta to the numbers of the position after
+     *  move #I of the position PLY plies deep. */
+    private void childNumbers(int i, int ply) {
+        int move = _moves[i];
+        boolean capture = _board.makeMove(move);
+        Side mover = _board.turn();
+        if (_board.piecesContiguous(mover.opponent())) {
+            _childPhi = INFINITY;
+            _childDelta = 0;
+        } else if (_board.piecesContiguous(mover)) {
+            _childPhi = 0;
+            _childDelta = INFINITY;
+        } else if (ply + 1 >= MAX_DEPTH || repeats(ply)) {
+            boolean attacking = mover == _attacker;
+            _childPhi = attacking ? INFINITY : 0;
+            _childDelta = attacking ? 0 : INFINITY;
+        } else {
+            int slot = slot(_board.hashKey());
+            if (_keys[slot] == _board.hashKey()) {
+                _childPhi = _phis[slot];
+                _childDelta = _deltas[slot];
+            } else {
+                _childPhi = _childDelta = 1;
+            }
+        }
+        _board.unmakeMove(move, capture);
+    }
+
+    /** Return true iff the current position, PLY + 1 plies deep, repeats
+     *  one earlier on the current line. */
+    private boolean repeats(int ply) {
+        long key = _board.hashKey();
+        for (int p = ply - 1; p >= 0; p -= 2) {
+            if (_path[p] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the phi recorded for the position with hash key KEY, or 1
+     *  if there is none. */
+    private int lookupPhi(long key) {
+        int slot = slot(key);
+        return _keys[slot] == key ? _phis[slot] : 1;
+    }
+
+    /** Record PHI and DELTA for the position with hash key KEY. */
+    private void store(long key, int phi, int delta) {
+        int slot = slot(key);
+        _keys[slot] = key;
+        _phis[slot] = phi;
+        _deltas[slot] = delta;
+    }
+
+    /** Return the hash table slot of the position with hash key KEY. */
+    private static int slot(long key) {
+        return (int) (key ^ (key >>> HASH_BITS)) & (HASH_SIZE - 1);
+    }
+
+    /** Return X + Y, or INFINITY if that is larger. */
+    private static int add(int x, int y) {
+        return (int) Math.min((long) x + y, INFINITY);
+    }
+
+    /** The position searched. */
+    private MutableBoard _board;
+    /** The most positions visited per search. */
+    private final long _budget;
+    /** The side trying to prove a win. */
+    private Side _attacker;
+    /** The number of positions visited. */
+    private long _nodes;
+    /** True iff the search has run out of budget or been stopped. */
+    private boolean _aborted;
+    /** True iff stop() has been called. */
+    private volatile boolean _stopped;
+
+    /** The numbers of the child examined last by childNumbers. */
+    private int _childPhi, _childDelta;
+
+    /** The moves of each ply: ply P uses the MAX_MOVES entries from
+     *  P * MAX_MOVES. */
+    private final int[] _moves = new int[MAX_DEPTH * Board.MAX_MOVES];
+    /** The hash keys of the positions on the current line: _path[P] is
+     *  that of the position P plies deep. */
+    private final long[] _path = new long[MAX_DEPTH];
+
+    /** The hash table: the key, phi and delta of each recorded
+     *  position. */
+    private final long[] _keys = new long[HASH_SIZE];
+    /** See _keys. */
+    private final int[] _phis = new int[HASH_SIZE],
+        _deltas = new int[HASH_SIZE];
+
+    /** The deepest ply searched. */
+    static final int MAX_DEPTH = Search.MAX_PLY;
+    /** An unreachable proof or disproof number. */
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+    /** The base 2 logarithm of the number of hash table slots. */
+    private static final int HASH_BITS = 20;
+    /** The number of hash table slots. */
+    private static final int HASH_SIZE = 1 << HASH_BITS;
+
+    /** The default most positions visited per move by MachinePlayer. */
+    static final long DEFAULT_BUDGET = 200000;
+}
@@ -0,0 +1,99 @@
+package loa;
+
+import java.io.IOException;
+
+import static loa.Side.*;
+
+/** Replays the games of a GameArchive through MutableBoard.makeMove,
+ *  either checking all of them or showing one.
+ *  @author Nick Holt */
+class Replay {
+
+    /** Replay every game in the archive named FILENAME, checking that its
+     *  moves are legal, and print a summary.  If the archive ends with a
+     *  damaged record, as when a run writing it was interrupted, the games
+     *  before it are still replayed and the damage is reported. */
+    static void run(String fileName) throws IOException {
+        long start = System.nanoTime();
+        long games = 0, plies = 0, illegal = 0;
+        long whiteWins = 0, blackWins = 0;
+        String damage = null;
+        try (GameArchive.Reader in = new GameArchive.Reader(fileName)) {
+            while (true) {
+                GameRecord record;
+                try {
+                    record = in.next();
+                } catch (IOException excp) {
+                    damage = excp.getMessage();
+                    break;
+                }
+                if (record == null) {
+                    break;
+                }
+                MutableBoard board = record.replay();
+                if (board == null) {
+                    illegal += 1;
+                    Reporter.debug(1, "Game %d has an illegal move.", games);
+                } else if (record.winner() == WHITE) {
+                    whiteWins += 1;
+                } else if (record.winner() == BLACK) {
+                    blackWins += 1;
+                }
+                games += 1;
+                plies += record.size();
+            }
+        }
+        long millis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+        System.out.printf("%d games, %d plies: white %d, black %d,"
+                          + " illegal %d. %d ms (%d games/s).%n", games,
+                          plies, whiteWins, blackWins, illegal, millis,
+                          games * MILLIS_PER_SECOND / Math.max(millis, 1));
+        if (damage != null) {
+            System.out.printf("Stopped at game %d: %s.%n", games, damage);
+        }
+    }
+
+    /** Print game number INDEX (from 0) in the archive named FILENAME
+     *  move by move, and its final position. */
+    static void show(String fileName, long index) throws IOException {
+        GameRecord record = null;
+        try (GameArchive.Reader in = new GameArchive.Reader(fileName)) {
+            for (long k = 0; k <= index; k += 1) {
+                record = in.next();
+                if (record == null) {
+                    System.out.printf("There is no game %d.%n", index);
+                    return;
+                }
+            }
+        }
+        System.out.printf("Game %d: seed %d, time limit %d s, black %d ms,"
+                          + " white %d ms.%n", index, record.seed(),
+                          record.time(), record.millis(BLACK),
+                          record.millis(WHITE));
+        MutableBoard board = record.start();
+        for (int k = 0; k < record.size(); k += 1) {
+            int code = record.move(k);
+            Move move = code < Move.NUM_CODES ? Move.create(code) : null;
+            if (move == null || !board.isLegal(move)) {
+                System.out.printf("Move %d is illegal.%n", k);
+                return;
+            }
+            System.out.println((board.turn() == WHITE ? "W::" : "B::")
+                               + move);
+            board.makeMove(move);
+        }
+        System.out.println(board);
+        if (record.winner() == WHITE) {
+            System.out.println("White wins.");
+        } else if (record.winner() == BLACK) {
+            System.out.println("Black wins.");
+        } else {
+            System.out.println("Neither side won.");
+        }
+    }
+
+    /** Nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+    /** Milliseconds in a second. */
+    private static final long MILLIS_PER_SECOND = 1000;
+}
@@ -18,11 +18,18 @@ public class Reporter {
         return _messageLevel;
     }
 
+    /** Returns true iff debug would print a message at LEVEL.  Frequently
+     *  executed code tests this before calling debug, so that the
+     *  arguments are not boxed and gathered into an array for nothing. */
+    public static boolean isEnabled(int level) {
+        return level > 0 && level <= _messageLevel;
+    }
+
     /** Print a message on the standard error if LEVEL is positive and <= the
      *  current message level. FORMAT and ARGS are as for the .printf
      *  methods. */
     public static void debug(int level, String format, Object... args) {
-        if (level > 0 && level <= _messageLevel) {
+        if (isEnabled(level)) {
             System.err.printf(format, args);
             System.err.println();
         }
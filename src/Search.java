@@ -0,0 +1,368 @@
+package loa;
+
+import static loa.TranspositionTable.EXACT;
+import static loa.TranspositionTable.LOWER;
+import static loa.TranspositionTable.UPPER;
+
+/** A search for the best move of the side to move on a MutableBoard:
+ *  negamax alpha-beta with iterative deepening and principal variation
+ *  search.  All moves are made and unmade on the one board, and results
+ *  are shared with other searches through a TranspositionTable.  Scores
+ *  are from the point of view of the side to move.
+ *  @author Nick Holt
+ */
+class Search {
+
+    /** The score of a won position, less the number of plies to the end
+     *  of the game, so that quicker wins score higher. */
+    static final int WIN = 30000;
+
+    /** The deepest ply a search reaches. */
+    static final int MAX_PLY = 64;
+
+    /** Scores at least this large (in absolute value) are wins or losses
+     *  found by the search. */
+    static final int WIN_THRESHOLD = WIN - MAX_PLY;
+
+    /** The score of a position the tablebases show won, before
+     *  adjustment by at most KNOWN_MARGIN. */
+    static final int KNOWN_WIN = WIN / 2, KNOWN_MARGIN = 1000;
+
+    /** A search of the position on BOARD, sharing results through TABLE.
+     *  BOARD is modified during a search, but restored at its end. */
+    Search(MutableBoard board, TranspositionTable table) {
+        this(board, table, new MoveOrdering());
+    }
+
+    /** A search of the position on BOARD, sharing results through TABLE
+     *  and ordering moves with ORDERING, whose history it adds to.  Passing
+     *  the same ORDERING to the searches of successive moves carries the
+     *  history from one move to the next.  BOARD is modified during a
+     *  search, but restored at its end. */
+    Search(MutableBoard board, TranspositionTable table,
+           MoveOrdering ordering) {
+        _board = board;
+        _table = table;
+        _ordering = ordering;
+    }
+
+    /** Search to depths 1, 2, ..., MAXDEPTH, and return the code of the
+     *  best move found by the deepest search, or 0 if the side to move
+     *  has no legal moves.  Stops early once the result is proven. */
+    int bestMove(int maxDepth) {
+        return bestMove(maxDepth, TimeManager.unlimited());
+    }
+
+    /** As for bestMove(MAXDEPTH), but start no iteration after TIMER's
+     *  soft deadline, and abandon the search at its hard deadline or when
+     *  stop() is called.  The first iteration is always completed unless
+     *  the search is stopped. */
+    int bestMove(int maxDepth, TimeManager timer) {
+        int count = _board.generateMoves(_moves, 0);
+        _nodes = _probes = _hits = 0;
+        _depth = 0;
+        _timer = timer;
+        _ordering.newSearch();
+        long entry = _table.probe(_board.hashKey());
+        _ordering.score(_board, _moves, _scores, 0, count, 0,
+                        entry == 0 ? 0 : TranspositionTable.move(entry));
+        for (int i = 0; i < count; i++) {
+            MoveOrdering.pickNext(_moves, _scores, i, count);
+        }
+        if (_helper > 0 && count > 0) {
+            rotateRootMoves(_helper % count, count);
+        }
+        for (int depth = 1 + (_helper & 1); depth <= maxDepth && count > 0;
+             depth++) {
+            if (_depth > 0 && !timer.timeForIteration()) {
+                break;
+            }
+            int alpha = -INFINITY;
+            for (int i = 0; i < count; i++) {
+                int move = _moves[i];
+                boolean capture = _board.makeMove(move);
+                int score;
+                if (i == 0) {
+                    score = -search(depth - 1, 1, -INFINITY, -alpha);
+                } else {
+                    score = -search(depth - 1, 1, -alpha - 1, -alpha);
+                    if (score > alpha) {
+                        score = -search(depth - 1, 1, -INFINITY, -alpha);
+                    }
+                }
+                _board.unmakeMove(move, capture);
+                if (_stopped) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    System.arraycopy(_moves, 0, _moves, 1, i);
+                    _moves[0] = move;
+                }
+            }
+            if (_stopped) {
+                if (_helper == 0 && _reporting) {
+                    Reporter.debug(2, "depth %d abandoned after %d ms", depth,
+                                   timer.elapsedMillis());
+                }
+                break;
+            }
+            _score = alpha;
+            _depth = depth;
+            _table.store(_board.hashKey(), depth, EXACT, toTable(alpha, 0),
+                         _moves[0]);
+            if (_helper == 0 && _reporting && Reporter.isEnabled(2)) {
+                Reporter.debug(2, "depth %d: %s scores %d (%d nodes, %d ms)",
+                               depth, Move.create(_moves[0]), alpha, _nodes,
+                               timer.elapsedMillis());
+            }
+            if (Math.abs(alpha) >= WIN_THRESHOLD) {
+                break;
+            }
+        }
+        return count > 0 ? _moves[0] : 0;
+    }
+
+    /** Make this search helper number ID (> 0) of a parallel search: it
+     *  orders its root moves and chooses its first depth differently from
+     *  the main search (helper 0) so that the threads' work overlaps less.
+     *  See SearchPool. */
+    void setHelper(int id) {
+        _helper = id;
+    }
+
+    /** Use TABLEBASE, if not null, to score positions with few pieces
+     *  exactly.  Only drawn positions end the search early; won and lost
+     *  ones are still searched, so that the actual win is found, with
+     *  tablebase results at the leaves. */
+    void setTablebase(Tablebase tablebase) {
+        _tablebase = tablebase;
+    }
+
+    /** Return the tablebase set by setTablebase, or null. */
+    Tablebase tablebase() {
+        return _tablebase;
+    }
+
+    /** Do not report progress at debug level 2 even as a main search.
+     *  For searches run in the background. */
+    void setSilent() {
+        _reporting = false;
+    }
+
+    /** Stop this search as soon as possible.  May be called from any
+     *  thread.  A stopped search remains stopped. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Return the score found by the last completed iteration of
+     *  bestMove. */
+    int score() {
+        return _score;
+    }
+
+    /** Return the depth of the last completed iteration of bestMove. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the number of positions visited by the last bestMove. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the number of transposition table probes made inside the
+     *  tree by the last bestMove. */
+    long hashProbes() {
+        return _probes;
+    }
+
+    /** Return the number of the probes counted by hashProbes() that found
+     *  an entry. */
+    long hashHits() {
+        return _hits;
+    }
+
+    /** Rotate the COUNT root moves left by K places. */
+    private void rotateRootMoves(int k, int count) {
+        for (int n = 0; n < k; n++) {
+            int first = _moves[0];
+            System.arraycopy(_moves, 1, _moves, 0, count - 1);
+            _moves[count - 1] = first;
+        }
+    }
+
+    /** Return the score of the current position, searched to DEPTH
+     *  plies, where the position is PLY plies from the root.  Scores
+     *  outside ALPHA..BETA are only bounds. */
+    private int search(int depth, int ply, int alpha, int beta) {
+        _nodes += 1;
+        if (Counters.ENABLED) {
+            Counters.NODES.increment();
+        }
+        if ((_nodes & (CHECK_INTERVAL - 1)) == 0 && _depth > 0
+                && _timer.hardExpired()) {
+            _stopped = true;
+        }
+        if (_stopped) {
+            return 0;
+        }
+        if (_board.piecesContiguous(_board.turn().opponent())) {
+            return -(WIN - ply);
+        }
+        if (_tablebase != null && ply > 0) {
+            int result = _tablebase.probe(_board);
+            if (result == Tablebase.DRAW
+                || (result != Tablebase.UNKNOWN && depth <= 0)) {
+                return tablebaseScore(result);
+            }
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1) {
+            return Evaluator.evaluate(_board);
+        }
+        long key = _board.hashKey();
+        long entry = _table.probe(key);
+        int hashMove = 0;
+        _probes += 1;
+        if (entry != 0) {
+            _hits += 1;
+            hashMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == EXACT || (bound == LOWER && score >= beta)
+                        || (bound == UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+        int start = ply * Board.MAX_MOVES,
+            end = _board.generateMoves(_moves, start);
+        if (end == start) {
+            return -(WIN - ply);
+        }
+        _ordering.score(_board, _moves, _scores, start, end, ply, hashMove);
+        int best = -INFINITY, bestMove = 0, alpha0 = alpha;
+        for (int i = start; i < end; i++) {
+            MoveOrdering.pickNext(_moves, _scores, i, end);
+            int move = _moves[i];
+            boolean capture = _board.makeMove(move);
+            int score;
+            if (i == start) {
+                score = -search(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                score = -search(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -search(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            _board.unmakeMove(move, capture);
+            if (_stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (!capture) {
+                            _ordering.recordCutoff(move, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? LOWER : best > alpha0 ? EXACT : UPPER;
+        _table.store(key, depth, bound, toTable(best, ply), bestMove);
+        return best;
+    }
+
+    /** Return the score of the current position, whose tablebase result
+     *  is RESULT.  Tablebases do not give the distance to the end of the
+     *  game, so won positions score KNOWN_WIN adjusted by the static
+     *  evaluation, which keeps the search making progress, and below any
+     *  win it has found itself. */
+    private int tablebaseScore(int result) {
+        if (result == Tablebase.DRAW) {
+            return 0;
+        }
+        int bias = Math.max(-KNOWN_MARGIN,
+                            Math.min(KNOWN_MARGIN,
+                                     Evaluator.evaluate(_board)));
+        return (result == Tablebase.WIN ? KNOWN_WIN : -KNOWN_WIN) + bias;
+    }
+
+    /** Return SCORE, found PLY plies from the root, in the form stored in
+     *  the transposition table: wins and losses are counted from the
+     *  position stored rather than from the root. */
+    private static int toTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score + ply;
+        } else if (score <= -WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /** Return the score stored in the transposition table as SCORE, for a
+     *  position PLY plies from the root.  Inverts toTable. */
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score - ply;
+        } else if (score <= -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /** The board searched. */
+    private final MutableBoard _board;
+
+    /** The table of search results. */
+    private final TranspositionTable _table;
+
+    /** The moves of each ply: ply P uses the MAX_MOVES entries from
+     *  P * MAX_MOVES. */
+    private final int[] _moves = new int[MAX_PLY * Board.MAX_MOVES];
+
+    /** The ordering scores of the moves in _moves. */
+    private final int[] _scores = new int[MAX_PLY * Board.MAX_MOVES];
+
+    /** Chooses the order in which moves are searched. */
+    private final MoveOrdering _ordering;
+
+    /** The number of positions visited by the current search. */
+    private long _nodes;
+
+    /** The transposition table probes made by the current search, and
+     *  those that found an entry. */
+    private long _probes, _hits;
+
+    /** The deadlines of the current search. */
+    private TimeManager _timer;
+
+    /** True iff the current search has been abandoned. */
+    private volatile boolean _stopped;
+
+    /** Exact results of positions with few pieces, or null. */
+    private Tablebase _tablebase;
+
+    /** True iff a main search reports its progress. */
+    private boolean _reporting = true;
+
+    /** 0 for a main search, or this search's helper number. */
+    private int _helper;
+
+    /** The score and depth of the last completed iteration. */
+    private int _score, _depth;
+
+    /** The number of positions visited between checks of the hard
+     *  deadline.  A power of two. */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /** A score larger than any real score. */
+    private static final int INFINITY = WIN + 1;
+}
@@ -0,0 +1,139 @@
+package loa;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/** Runs parallel searches in the "Lazy SMP" style: while the calling
+ *  thread searches the position, helper threads search the same position
+ *  on their own MutableBoard copies, sharing one TranspositionTable.  The
+ *  helpers' results reach the main search only through the table; the
+ *  main search chooses the move.  The helper threads are created once and
+ *  reused for every move.
+ *  @author Nick Holt
+ */
+class SearchPool {
+
+    /** A pool searching with THREADS threads in all (including the
+     *  calling thread).  THREADS >= 1. */
+    SearchPool(int threads) {
+        assert threads >= 1;
+        _threads = threads;
+        _orderings = new MoveOrdering[threads];
+        for (int i = 1; i < threads; i++) {
+            _orderings[i] = new MoveOrdering();
+        }
+        if (threads > 1) {
+            _helpers = Executors.newFixedThreadPool(threads - 1,
+                                                    new HelperFactory());
+        } else {
+            _helpers = null;
+        }
+    }
+
+    /** Return the number of threads that search. */
+    int threads() {
+        return _threads;
+    }
+
+    /** Run SEARCH, which must be of a copy of BOARD, to at most MAXDEPTH
+     *  plies within TIMER's deadlines, with helper searches of BOARD using
+     *  TABLE.  Return SEARCH's best move. */
+    int bestMove(Search search, Board board, TranspositionTable table,
+                 int maxDepth, TimeManager timer) {
+        ArrayList<Search> helpers = new ArrayList<Search>();
+        ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int i = 1; i < _threads; i++) {
+            Search helper = new Search(new MutableBoard(board), table,
+                                       _orderings[i]);
+            helper.setHelper(i);
+            helper.setTablebase(search.tablebase());
+            helpers.add(helper);
+            results.add(_helpers.submit(new HelperTask(helper, maxDepth,
+                                                       timer)));
+        }
+        int move = search.bestMove(maxDepth, timer);
+        long nodes = search.nodes();
+        for (Search helper : helpers) {
+            helper.stop();
+        }
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            nodes += helpers.get(i).nodes();
+        }
+        _nodes = nodes;
+        return move;
+    }
+
+    /** Return the number of positions visited by all threads during the
+     *  last call to bestMove. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Stop the helper threads.  The pool may not be used afterwards. */
+    void shutdown() {
+        if (_helpers != null) {
+            _helpers.shutdownNow();
+        }
+    }
+
+    /** A helper search, run on a pool thread. */
+    private static class HelperTask implements Callable<Integer> {
+        /** A task running SEARCH to at most MAXDEPTH within TIMER. */
+        HelperTask(Search search, int maxDepth, TimeManager timer) {
+            _search = search;
+            _maxDepth = maxDepth;
+            _timer = timer;
+        }
+
+        @Override
+        public Integer call() {
+            return _search.bestMove(_maxDepth, _timer);
+        }
+
+        /** The search to run. */
+        private final Search _search;
+        /** Its depth limit. */
+        private final int _maxDepth;
+        /** Its deadlines. */
+        private final TimeManager _timer;
+    }
+
+    /** Makes the (daemon) helper threads. */
+    private static class HelperFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "loa-search-" + _count);
+            _count += 1;
+            thread.setDaemon(true);
+            return thread;
+        }
+
+        /** The number of threads made so far. */
+        private int _count = 1;
+    }
+
+    /** The number of searching threads. */
+    private final int _threads;
+
+    /** Runs the helper searches, or null if there are none. */
+    private final ExecutorService _helpers;
+
+    /** The move ordering of helper search I is _orderings[I], kept from
+     *  move to move. */
+    private final MoveOrdering[] _orderings;
+
+    /** Positions visited during the last bestMove. */
+    private long _nodes;
+}
@@ -0,0 +1,177 @@
+package loa;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static loa.Side.*;
+
+/** A batch of headless games between two AIs, several played at once.
+ *  Each game opens with RANDOM_OPENING random moves drawn from its seed,
+ *  so that the games of a batch differ.  Each finished game is written as
+ *  one line of the form
+ *      INDEX SEED WINNER PLIES OPENING MILLIS...
+ *  where WINNER is white, black or none, PLIES is the number of moves
+ *  made, OPENING is the random moves separated by commas, and MILLIS are
+ *  the times taken by each of the AIs' moves in turn.  Games may also be
+ *  appended to a GameArchive.
+ *  @author Nick Holt */
+class SelfPlay {
+
+    /** A batch of GAMES games, played THREADS at a time.  Game i uses
+     *  seed SEED + i, or a random base seed if SEED <= 0.  TIME is each
+     *  side's time limit in seconds (none if <= 0), HASH is each game's
+     *  transposition table size in megabytes and MONTECARLO selects the
+     *  Monte Carlo AIs. */
+    SelfPlay(int games, int threads, long seed, int time, int hash,
+             boolean monteCarlo) {
+        _games = games;
+        _threads = threads;
+        _seed = seed > 0 ? seed : 1 + (new Random().nextLong() >>> 2);
+        _time = time;
+        _hash = hash;
+        _monteCarlo = monteCarlo;
+    }
+
+    /** Also append each game to the GameArchive named FILENAME, or to no
+     *  archive if it is null. */
+    void setArchive(String fileName) {
+        _archiveName = fileName;
+    }
+
+    /** Play the batch, appending one line per game to the file named
+     *  FILENAME as each game ends, then print a summary. */
+    void run(String fileName) throws IOException {
+        PrintWriter out = new PrintWriter(new FileWriter(fileName, true));
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        Counters.reset();
+        if (_archiveName != null) {
+            _archive = new GameArchive.Writer(_archiveName);
+        }
+        try {
+            for (int i = 0; i < _games; i += 1) {
+                final int index = i;
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        playOne(index, out);
+                    }
+                });
+            }
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                Reporter.debug(1, "%d of %d games played.", played(),
+                               _games);
+            }
+        } catch (InterruptedException excp) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            out.close();
+            if (_archive != null) {
+                _archive.close();
+            }
+        }
+        System.out.printf("%d games: white %d, black %d, unfinished %d,"
+                          + " failed %d.%n", _games, _whiteWins,
+                          _blackWins, _unfinished, _failed);
+        if (Counters.ENABLED) {
+            Counters.dump(System.out);
+        }
+    }
+
+    /** Play game number INDEX and record it on OUT. */
+    private void playOne(int index, PrintWriter out) {
+        long seed = _seed + index;
+        Game game = new Game(0, BLACK, seed, _time);
+        game.setHashSize(_hash);
+        game.setThreads(1);
+        game.setMonteCarlo(_monteCarlo);
+        game.setRandomOpening(RANDOM_OPENING);
+        Side winner;
+        try {
+            winner = game.playHeadless();
+        } catch (RuntimeException excp) {
+            Reporter.debug(1, "Game %d failed: %s", index, excp);
+            synchronized (this) {
+                _failed += 1;
+            }
+            return;
+        }
+        if (_archive != null) {
+            try {
+                _archive.write(GameRecord.of(game.getBoard(), winner, seed,
+                                             Math.max(_time, 0),
+                                             game.getTime(BLACK),
+                                             game.getTime(WHITE)));
+            } catch (IOException excp) {
+                System.err.printf("Error: could not archive game %d: %s%n",
+                                  index, excp.getMessage());
+            }
+        }
+        ArrayList<Long> times = game.getMoveTimes();
+        Board board = game.getBoard();
+        StringBuilder line = new StringBuilder();
+        line.append(index).append(' ').append(seed).append(' ')
+            .append(winner == null ? "none" : winner.toString())
+            .append(' ').append(board.movesMade()).append(' ');
+        int opening = Math.min(RANDOM_OPENING, board.movesMade());
+        for (int k = 0; k < opening; k += 1) {
+            line.append(k == 0 ? "" : ",").append(board.getMove(k));
+        }
+        for (long time : times) {
+            line.append(' ').append(time);
+        }
+        synchronized (this) {
+            if (winner == WHITE) {
+                _whiteWins += 1;
+            } else if (winner == BLACK) {
+                _blackWins += 1;
+            } else {
+                _unfinished += 1;
+            }
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    /** Return the number of games finished so far. */
+    private synchronized int played() {
+        return _whiteWins + _blackWins + _unfinished + _failed;
+    }
+
+    /** The number of games in the batch. */
+    private final int _games;
+    /** The number of games played at once. */
+    private final int _threads;
+    /** The seed of game 0. */
+    private final long _seed;
+    /** Each side's time limit, in seconds. */
+    private final int _time;
+    /** Transposition table size per game, in megabytes. */
+    private final int _hash;
+    /** True iff the games are between Monte Carlo AIs. */
+    private final boolean _monteCarlo;
+
+    /** The name of the archive of the games, or null. */
+    private String _archiveName;
+    /** The archive of the games while they are played, or null. */
+    private GameArchive.Writer _archive;
+
+    /** The number of random moves with which each game opens. */
+    static final int RANDOM_OPENING = 4;
+
+    /** Games won by white. */
+    private int _whiteWins;
+    /** Games won by black. */
+    private int _blackWins;
+    /** Games that reached Game.MAX_PLIES. */
+    private int _unfinished;
+    /** Games that ended with an error. */
+    private int _failed;
+}
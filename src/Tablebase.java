@@ -0,0 +1,191 @@
+package loa;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/** Endgame tablebases: the exact result, with best play, of every
+ *  position in which each side has at most MAX_PIECES pieces.  There is
+ *  one table for each count of pieces of the side to move ("own") and of
+ *  its opponent, holding two bits per position (DRAW, WIN or LOSS for the
+ *  side to move) at the position's index.  Positions are indexed by the
+ *  combinatorial number system: the own pieces' squares are ranked among
+ *  all the squares, and the opponent's among the squares left, so the
+ *  index is perfect (every index is a position) and, since the table is
+ *  from the mover's point of view, serves either colour.  Tables are
+ *  built by TablebaseBuilder and memory-mapped when probed.
+ *  @author Nick Holt */
+class Tablebase {
+
+    /** The most pieces a side may have in a table. */
+    static final int MAX_PIECES = 3;
+
+    /** Results of positions, for the side to move. */
+    static final int DRAW = 0, WIN = 1, LOSS = 2;
+
+    /** The result of a probe of a position not in the tables. */
+    static final int UNKNOWN = -1;
+
+    /** Return the tables in directory DIR.  Tables missing from DIR are
+     *  treated as unknown. */
+    static Tablebase open(String dir) throws IOException {
+        Tablebase result = new Tablebase();
+        for (int own = 1; own <= MAX_PIECES; own += 1) {
+            for (int opp = 1; opp <= MAX_PIECES; opp += 1) {
+                File file = new File(dir, fileName(own, opp));
+                if (!file.exists()) {
+                    continue;
+                }
+                try (FileChannel channel =
+                     FileChannel.open(file.toPath(),
+                                      StandardOpenOption.READ)) {
+                    if (channel.size() != bytes(own, opp)) {
+                        throw new IOException("wrong size: " + file);
+                    }
+                    result._tables[own][opp] =
+                        channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                    channel.size());
+                    result._count += 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the number of tables found by open. */
+    int count() {
+        return _count;
+    }
+
+    /** Return the result for the side to move of the position in which
+     *  it has the pieces OWN and its opponent OPP, or UNKNOWN if there is
+     *  no table for it. */
+    int probe(long own, long opp) {
+        int a = Long.bitCount(own), b = Long.bitCount(opp);
+        if (a > MAX_PIECES || b > MAX_PIECES) {
+            return UNKNOWN;
+        }
+        MappedByteBuffer table = _tables[a][b];
+        if (table == null) {
+            return UNKNOWN;
+        }
+        int index = index(own, opp);
+        return (table.get(index >>> 2) >>> ((index & 3) * 2)) & 3;
+    }
+
+    /** Return the result for the side to move on BOARD, as for
+     *  probe(long, long). */
+    int probe(Board board) {
+        Side me = board.turn();
+        return probe(board.pieces(me), board.pieces(me.opponent()));
+    }
+
+    /** Return the number of positions with OWN pieces for the side to move
+     *  and OPP for its opponent. */
+    static long size(int own, int opp) {
+        return binomial(SQUARES, own) * binomial(SQUARES - own, opp);
+    }
+
+    /** Return the size in bytes of the table for OWN against OPP pieces. */
+    static long bytes(int own, int opp) {
+        return (size(own, opp) + 3) / 4;
+    }
+
+    /** Return the name of the file holding the table for OWN against OPP
+     *  pieces. */
+    static String fileName(int own, int opp) {
+        return "tb" + own + "v" + opp + ".bin";
+    }
+
+    /** Return the index of the position in which the side to move has the
+     *  pieces OWN and its opponent OPP, each at most MAX_PIECES. */
+    static int index(long own, long opp) {
+        long oppRanks = binomial(SQUARES - Long.bitCount(own),
+                                 Long.bitCount(opp));
+        return (int) (rank(own) * oppRanks + rank(compress(opp, own)));
+    }
+
+    /** Return the colexicographic rank of SET among the sets of squares
+     *  of its size. */
+    static long rank(long set) {
+        long result = 0;
+        int k = 1;
+        for (long rest = set; rest != 0; rest &= rest - 1, k += 1) {
+            result += binomial(Long.numberOfTrailingZeros(rest), k);
+        }
+        return result;
+    }
+
+    /** Return the set of K squares whose rank is RANK, the inverse of
+     *  rank. */
+    static long unrank(long rank, int k) {
+        long result = 0;
+        for (int i = k, c = SQUARES - 1; i > 0; i -= 1) {
+            while (binomial(c, i) > rank) {
+                c -= 1;
+            }
+            result |= 1L << c;
+            rank -= binomial(c, i);
+            c -= 1;
+        }
+        return result;
+    }
+
+    /** Return SET, which is disjoint from the squares in HOLES, with each
+     *  square renumbered to skip the squares in HOLES. */
+    static long compress(long set, long holes) {
+        long result = 0;
+        for (long rest = set; rest != 0; rest &= rest - 1) {
+            int sq = Long.numberOfTrailingZeros(rest);
+            result |= 1L << (sq - Long.bitCount(holes & ((1L << sq) - 1)));
+        }
+        return result;
+    }
+
+    /** Return the inverse of compress(SET, HOLES). */
+    static long expand(long set, long holes) {
+        long result = 0;
+        for (long rest = set; rest != 0; rest &= rest - 1) {
+            int sq = Long.numberOfTrailingZeros(rest);
+            for (long h = holes; h != 0; h &= h - 1) {
+                if (Long.numberOfTrailingZeros(h) <= sq) {
+                    sq += 1;
+                }
+            }
+            result |= 1L << sq;
+        }
+        return result;
+    }
+
+    /** Return N choose K, for 0 <= N <= SQUARES and 0 <= K <=
+     *  MAX_PIECES. */
+    static long binomial(int n, int k) {
+        return BINOMIALS[n][k];
+    }
+
+    /** The tables, indexed by the numbers of own and opponent pieces, or
+     *  null where absent. */
+    private final MappedByteBuffer[][] _tables =
+        new MappedByteBuffer[MAX_PIECES + 1][MAX_PIECES + 1];
+    /** The number of tables present. */
+    private int _count;
+
+    /** The number of squares. */
+    private static final int SQUARES = BitBoards.SQUARES;
+
+    /** BINOMIALS[n][k] is n choose k. */
+    private static final long[][] BINOMIALS =
+        new long[SQUARES + 1][MAX_PIECES + 1];
+
+    static {
+        for (int n = 0; n <= SQUARES; n += 1) {
+            BINOMIALS[n][0] = 1;
+            for (int k = 1; k <= MAX_PIECES; k += 1) {
+                BINOMIALS[n][k] =
+                    n == 0 ? 0 : BINOMIALS[n - 1][k - 1] + BINOMIALS[n - 1][k];
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package loa;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static loa.BitBoards.*;
+import static loa.Tablebase.*;
+
+/** Builds the tables of a Tablebase.  Tables are built in order of the
+ *  total number of pieces, since a capture leads to a table with fewer.
+ *  A table for A against B pieces is built together with the table for B
+ *  against A, whose positions its moves lead to.  Each table starts with
+ *  the positions already decided: lost if the opponent's pieces are
+ *  contiguous, and otherwise won if the mover's are.  Then passes over
+ *  the undecided positions mark as won every position with a move to a
+ *  lost position, and as lost every position all of whose moves lead to
+ *  won positions (or that has no moves), until a pass changes nothing.
+ *  What remains is drawn.  Each pass is split among the threads of a
+ *  ForkJoinPool by ranges of the mover's piece placements.  Working
+ *  values are held one byte per position, and the finished tables are
+ *  written at two bits per position.
+ *  @author Nick Holt */
+class TablebaseBuilder {
+
+    /** A builder of all tables with at most PIECES pieces in all, working
+     *  on THREADS threads. */
+    TablebaseBuilder(int pieces, int threads) {
+        _pieces = pieces;
+        _pool = new ForkJoinPool(threads);
+    }
+
+    /** Build the tables, writing them into the directory DIR. */
+    void build(String dir) throws IOException {
+        new File(dir).mkdirs();
+        try {
+            for (int total = 2; total <= _pieces; total += 1) {
+                for (int a = 1; a <= MAX_PIECES; a += 1) {
+                    int b = total - a;
+                    if (b >= a && b <= MAX_PIECES) {
+                        solve(a, b);
+                        write(dir, a, b);
+                        if (a != b) {
+                            write(dir, b, a);
+                        }
+                    }
+                }
+            }
+        } finally {
+            _pool.shutdown();
+        }
+    }
+
+    /** Build the tables for A against B and B against A pieces. */
+    private void solve(int a, int b) {
+        long start = System.nanoTime();
+        _values[a][b] = new byte[(int) size(a, b)];
+        _values[b][a] = a == b ? _values[a][b] : new byte[(int) size(b, a)];
+        _pool.invoke(new Pass(a, b, 0, binomial(SQUARES, a), true));
+        if (a != b) {
+            _pool.invoke(new Pass(b, a, 0, binomial(SQUARES, b), true));
+        }
+        int passes = 0;
+        long changed;
+        do {
+            _changed.set(0);
+            _pool.invoke(new Pass(a, b, 0, binomial(SQUARES, a), false));
+            if (a != b) {
+                _pool.invoke(new Pass(b, a, 0, binomial(SQUARES, b), false));
+            }
+            changed = _changed.get();
+            passes += 1;
+            Reporter.debug(1, "%dv%d pass %d: %d decided.", a, b, passes,
+                           changed);
+        } while (changed > 0);
+        System.out.printf("Solved %dv%d%s in %d passes, %d ms.%n", a, b,
+                          a == b ? "" : " and " + b + "v" + a, passes,
+                          (System.nanoTime() - start) / NANOS_PER_MILLI);
+    }
+
+    /** Write the table for OWN against OPP pieces to directory DIR. */
+    private void write(String dir, int own, int opp) throws IOException {
+        byte[] values = _values[own][opp];
+        File file = new File(dir, fileName(own, opp));
+        try (OutputStream out =
+             new BufferedOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < values.length; i += 4) {
+                int packed = 0;
+                for (int j = 0; j < 4 && i + j < values.length; j += 1) {
+                    packed |= values[i + j] << (2 * j);
+                }
+                out.write(packed);
+            }
+        }
+    }
+
+    /** Return the value of the position in which the mover has OWN and its
+     *  opponent OPP, both non-empty: DRAW if it is not yet decided. */
+    private int value(long own, long opp) {
+        return _values[Long.bitCount(own)][Long.bitCount(opp)]
+            [index(own, opp)];
+    }
+
+    /** Return the value decided for the undecided position in which the
+     *  mover has OWN and its opponent OPP, or DRAW if it is still
+     *  undecided.  MOVES is a buffer for the moves. */
+    private int decide(long own, long opp, int[] moves) {
+        int count = generateMoves(own, opp, moves, 0);
+        boolean allWon = true;
+        for (int i = 0; i < count; i += 1) {
+            long from = bit(Move.from(moves[i])), to = bit(Move.to(moves[i]));
+            int next = value(opp & ~to, own ^ from ^ to);
+            if (next == LOSS) {
+                return WIN;
+            } else if (next != WIN) {
+                allWon = false;
+            }
+        }
+        return allWon ? LOSS : DRAW;
+    }
+
+    /** One pass over the positions of the table for A against B pieces in
+     *  which the mover's placements have ranks LO to HI-1. */
+    private class Pass extends RecursiveAction {
+
+        /** A pass over the positions of the table for A against B with
+         *  the mover's ranks LO .. HI-1, which marks the positions decided
+         *  at the start if INITIAL, or else decides what it can. */
+        Pass(int a, int b, long lo, long hi, boolean initial) {
+            _a = a;
+            _b = b;
+            _lo = lo;
+            _hi = hi;
+            _initial = initial;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo > SPLIT) {
+                long mid = (_lo + _hi) >>> 1;
+                invokeAll(new Pass(_a, _b, _lo, mid, _initial),
+                          new Pass(_a, _b, mid, _hi, _initial));
+                return;
+            }
+            byte[] values = _values[_a][_b];
+            int[] moves = new int[Board.MAX_MOVES];
+            long oppRanks = binomial(SQUARES - _a, _b);
+            long decided = 0;
+            for (long r = _lo; r < _hi; r += 1) {
+                long own = unrank(r, _a);
+                long compressed = (1L << _b) - 1;
+                for (long s = 0; s < oppRanks; s += 1) {
+                    int index = (int) (r * oppRanks + s);
+                    if (values[index] == DRAW) {
+                        long opp = expand(compressed, own);
+                        int value;
+                        if (_initial) {
+                            value = connected(opp) ? LOSS
+                                : connected(own) ? WIN : DRAW;
+                        } else {
+                            value = decide(own, opp, moves);
+                            decided += value == DRAW ? 0 : 1;
+                        }
+                        values[index] = (byte) value;
+                    }
+                    compressed = nextSet(compressed);
+                }
+            }
+            _changed.addAndGet(decided);
+        }
+
+        /** The numbers of pieces of the mover and its opponent. */
+        private final int _a, _b;
+        /** The range of the mover's ranks. */
+        private final long _lo, _hi;
+        /** True iff this is the initial pass. */
+        private final boolean _initial;
+
+        /** For Serializable, which ForkJoinTask implements. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Return the set with as many members as SET that follows it in
+     *  colexicographic order (Gosper's hack). */
+    private static long nextSet(long set) {
+        long low = set & -set, ripple = set + low;
+        return (((ripple ^ set) >>> 2) / low) | ripple;
+    }
+
+    /** The largest total number of pieces. */
+    private final int _pieces;
+    /** The threads that work on each pass. */
+    private final ForkJoinPool _pool;
+    /** The values of the positions of each table, indexed by the numbers
+     *  of the mover's and its opponent's pieces. */
+    private final byte[][][] _values =
+        new byte[MAX_PIECES + 1][MAX_PIECES + 1][];
+    /** The number of positions decided by the current pass. */
+    private final AtomicLong _changed = new AtomicLong();
+
+    /** The most ranks of the mover's pieces in a task that is not
+     *  split. */
+    private static final long SPLIT = 64;
+    /** The number of squares. */
+    private static final int SQUARES = BitBoards.SQUARES;
+    /** Nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /** The default total number of pieces. */
+    static final int DEFAULT_PIECES = 4;
+}
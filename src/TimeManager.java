@@ -0,0 +1,92 @@
+package loa;
+
+/** Allocates the thinking time for one move.  A TimeManager is created
+ *  as the move is started, from the time left on the mover's clock.  It
+ *  gives a soft deadline, after which a search should not start another
+ *  iteration, and a hard deadline, at which the search must stop and play
+ *  the best move of its last complete iteration.  Time is measured with
+ *  System.nanoTime().
+ *  @author Nick Holt
+ */
+class TimeManager {
+
+    /** Return a TimeManager for a move made with REMAINING milliseconds
+     *  left on the mover's clock. */
+    static TimeManager forMove(long remaining) {
+        long usable = Math.max(remaining - SAFETY_MARGIN, 0);
+        long soft = Math.max(usable / MOVES_TO_GO, MIN_MOVE_TIME);
+        long hard = Math.max(soft, Math.min(usable / HARD_FRACTION,
+                                            soft * HARD_FACTOR));
+        return new TimeManager(soft * NANOS_PER_MILLI,
+                               hard * NANOS_PER_MILLI);
+    }
+
+    /** Return a TimeManager that imposes no deadlines. */
+    static TimeManager unlimited() {
+        return new TimeManager(Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /** A TimeManager, started now, with a soft deadline SOFT and a hard
+     *  deadline HARD nanoseconds from now. */
+    private TimeManager(long soft, long hard) {
+        _start = System.nanoTime();
+        _soft = soft;
+        _hard = hard;
+    }
+
+    /** Return the number of milliseconds since this move was started. */
+    long elapsedMillis() {
+        return elapsed() / NANOS_PER_MILLI;
+    }
+
+    /** Return true iff there is time to start another iteration.  Each
+     *  iteration usually takes longer than all earlier ones together, so
+     *  none is started once half the soft allowance is gone. */
+    boolean timeForIteration() {
+        return elapsed() < _soft / 2;
+    }
+
+    /** Return the soft allowance, in milliseconds. */
+    long softMillis() {
+        return _soft / NANOS_PER_MILLI;
+    }
+
+    /** Return true iff the soft deadline has passed. */
+    boolean softExpired() {
+        return elapsed() >= _soft;
+    }
+
+    /** Return true iff the hard deadline has passed. */
+    boolean hardExpired() {
+        return elapsed() >= _hard;
+    }
+
+    /** Return the number of nanoseconds since this move was started. */
+    private long elapsed() {
+        return System.nanoTime() - _start;
+    }
+
+    /** The value of System.nanoTime() when this move was started. */
+    private final long _start;
+
+    /** The soft and hard allowances, in nanoseconds. */
+    private final long _soft, _hard;
+
+    /** The number of moves the remaining time is expected to cover. */
+    private static final int MOVES_TO_GO = 30;
+
+    /** The hard deadline is at most this fraction of the remaining time. */
+    private static final int HARD_FRACTION = 5;
+
+    /** The hard deadline is at most this multiple of the soft one. */
+    private static final int HARD_FACTOR = 4;
+
+    /** Milliseconds held back from the clock for overheads. */
+    private static final long SAFETY_MARGIN = 200;
+
+    /** The least time, in milliseconds, allocated to a move. */
+    private static final long MIN_MOVE_TIME = 10;
+
+    /** The number of nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+}
@@ -0,0 +1,142 @@
+package loa;
+
+/** A fixed-size table of search results keyed by Zobrist key (see
+ *  Board.hashKey()).  Each entry packs a score, search depth, bound type,
+ *  best move and search generation into one long (see the accessors below).
+ *  The table may be read and written by several threads without locking:
+ *  each slot holds the entry together with the entry XORed with its key,
+ *  so a slot torn by concurrent writers fails the key check on probe and
+ *  is treated as a miss.
+ *  @author Nick Holt
+ */
+class TranspositionTable {
+
+    /** Bound types: the stored score is exact, a lower bound (the search
+     *  failed high) or an upper bound (the search failed low). */
+    static final int EXACT = 0, LOWER = 1, UPPER = 2;
+
+    /** A table occupying at most MEGABYTES megabytes (and at least one
+     *  entry).  The number of entries is a power of two. */
+    TranspositionTable(int megabytes) {
+        long bytes = (long) Math.max(megabytes, 0) << MEGABYTE_BITS;
+        long entries = Long.highestOneBit(Math.max(bytes / ENTRY_BYTES, 1));
+        entries = Math.min(entries, MAX_ENTRIES);
+        _slots = new long[(int) entries * 2];
+        _mask = (int) entries - 1;
+    }
+
+    /** Return the number of entries in this table. */
+    int size() {
+        return _mask + 1;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        for (int i = 0; i < _slots.length; i++) {
+            _slots[i] = 0;
+        }
+    }
+
+    /** Start a new search.  Entries stored by earlier searches are
+     *  replaced in preference to those of the current one. */
+    void newSearch() {
+        _generation = (_generation + 1) & GENERATION_MASK;
+    }
+
+    /** Return the entry stored for KEY, or 0 if there is none. */
+    long probe(long key) {
+        int i = slot(key);
+        long entry = _slots[i + 1];
+        if (entry != 0 && (_slots[i] ^ entry) == key) {
+            return entry;
+        }
+        return 0;
+    }
+
+    /** Record that a search of DEPTH plies from the position with key KEY
+     *  produced SCORE (of type BOUND) and best move MOVE (a move code, or
+     *  0 for none).  An existing entry for a different position is kept
+     *  if it is from the current search and deeper than DEPTH. */
+    void store(long key, int depth, int bound, int score, int move) {
+        int i = slot(key);
+        long old = _slots[i + 1];
+        if (old != 0 && (_slots[i] ^ old) != key
+                && generation(old) == _generation && depth(old) > depth) {
+            return;
+        }
+        if (move == 0 && old != 0 && (_slots[i] ^ old) == key) {
+            move = move(old);
+        }
+        long entry = VALID
+            | ((long) _generation << GENERATION_SHIFT)
+            | ((long) move << MOVE_SHIFT)
+            | ((long) bound << BOUND_SHIFT)
+            | ((long) Math.min(Math.max(depth, 0), DEPTH_MASK) << DEPTH_SHIFT)
+            | (score & SCORE_MASK);
+        _slots[i] = key ^ entry;
+        _slots[i + 1] = entry;
+    }
+
+    /** Return the score recorded in ENTRY. */
+    static int score(long entry) {
+        return (short) (entry & SCORE_MASK);
+    }
+
+    /** Return the search depth recorded in ENTRY. */
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the bound type (EXACT, LOWER or UPPER) recorded in ENTRY. */
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & BOUND_MASK;
+    }
+
+    /** Return the best-move code recorded in ENTRY, or 0 if none. */
+    static int move(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & MOVE_MASK;
+    }
+
+    /** Return the search generation recorded in ENTRY. */
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    /** Return the index in _slots of the slot for KEY. */
+    private int slot(long key) {
+        return ((int) key & _mask) << 1;
+    }
+
+    /** Pairs of longs, one pair per entry: the entry XORed with its key,
+     *  then the entry itself. */
+    private final long[] _slots;
+
+    /** The number of entries less one. */
+    private final int _mask;
+
+    /** The generation of the current search. */
+    private volatile int _generation;
+
+    /** Layout of an entry: bits 0-15 hold the score, 16-23 the depth,
+     *  24-25 the bound type, 26-37 the move, 38-45 the generation, and
+     *  bit 63 is set in every stored entry. */
+    private static final int DEPTH_SHIFT = 16, BOUND_SHIFT = 24,
+        MOVE_SHIFT = 26, GENERATION_SHIFT = 38;
+
+    /** Masks for the fields of an entry, after shifting. */
+    private static final int SCORE_MASK = 0xffff, DEPTH_MASK = 0xff,
+        BOUND_MASK = 3, MOVE_MASK = 0xfff, GENERATION_MASK = 0xff;
+
+    /** Marks a stored entry, so that no entry is 0. */
+    private static final long VALID = 1L << 63;
+
+    /** The number of bytes in an entry. */
+    private static final int ENTRY_BYTES = 16;
+
+    /** log2 of the number of bytes in a megabyte. */
+    private static final int MEGABYTE_BITS = 20;
+
+    /** The largest number of entries (bounded by the maximum array
+     *  length). */
+    private static final long MAX_ENTRIES = 1L << 29;
+}